@@ -1,11 +1,14 @@
-import sun.nio.ch.DirectBuffer;
+import net.openhft.chronicle.core.MapOption;
+import net.openhft.chronicle.core.OS;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static java.lang.System.nanoTime;
@@ -18,50 +21,80 @@ hdd max resize: 0.163, map: 1.581, touch: 382.998, unmap: 6.087
 public class MapBenchMain {
 
     // Run with -DchunkSize=64 -DdataSize=40000 (both in MB)
+    // and -Doptions=PREFAULT,HUGE_PAGES to compare the page faults on first touch with and without MapOptions
 
     public static final int CHUNK_SIZE = Integer.getInteger("chunkSize", 64);
     public static final int DATA_SIZE = Integer.getInteger("dataSize", 40 << 10);
+    public static final MapOption[] OPTIONS = options(System.getProperty("options", ""));
+
+    static MapOption[] options(String options) {
+        return options.isEmpty()
+                ? new MapOption[0]
+                : Arrays.stream(options.split(",")).map(String::trim).map(MapOption::valueOf).toArray(MapOption[]::new);
+    }
 
     public static void main(String[] args) throws IOException {
         String name = args[0] + "/deleteme-" + nanoTime();
         try (RandomAccessFile raf = new RandomAccessFile(name, "rw")) {
             FileChannel channel = raf.getChannel();
             long size = CHUNK_SIZE << 20;
-            List<MappedByteBuffer> buffers = new ArrayList<>();
+            List<Long> addresses = new ArrayList<>();
             double maxResize = 0, maxMap = 0, maxTouch = 0, maxUnmap = 0;
+            long mapFaults = 0, touchFaults = 0;
             for (int i = 0; i < DATA_SIZE; i += CHUNK_SIZE) {
                 long start = System.nanoTime();
-                channel.truncate((i + 1) * size);
+                raf.setLength((i + 1) * size);
                 long mid = System.nanoTime();
-                MappedByteBuffer mbb = channel.map(FileChannel.MapMode.READ_WRITE, i * size, size);
-                buffers.add(mbb);
+                long faults0 = pageFaults();
+                long address = OS.map(channel, FileChannel.MapMode.READ_WRITE, i * size, size, OPTIONS);
+                addresses.add(address);
                 long mid2 = System.nanoTime();
+                long faults1 = pageFaults();
                 for (int j = 0; j < size; j += 4096)
-                    mbb.putLong(j, 0);
+                    OS.memory().writeLong(address + j, 0);
                 long end = System.nanoTime();
+                long faults2 = pageFaults();
                 double resize = (mid - start) / 1000 / 1e3;
                 double map = (mid2 - mid) / 1000 / 1e3;
                 double touch = (end - mid2) / 1000 / 1e3;
                 System.out.println(i + " resize: " + resize
                         + " map: " + map
-                        + " touch: " + touch);
+                        + " touch: " + touch
+                        + " map faults: " + (faults1 - faults0)
+                        + " touch faults: " + (faults2 - faults1));
                 maxResize = Math.max(maxResize, resize);
                 maxMap = Math.max(maxMap, map);
                 maxTouch = Math.max(maxTouch, touch);
+                mapFaults += faults1 - faults0;
+                touchFaults += faults2 - faults1;
             }
-            for (int i = 0; i < buffers.size(); i++) {
-                MappedByteBuffer buffer = buffers.get(i);
+            for (int i = 0; i < addresses.size(); i++) {
                 long start2 = nanoTime();
-                ((DirectBuffer) buffer).cleaner().clean();
+                OS.unmap(addresses.get(i), size);
                 long end2 = nanoTime();
                 double unmap = (end2 - start2) / 1000 / 1e3;
                 System.out.println(i * CHUNK_SIZE + " unmap: " + unmap);
                 maxUnmap = Math.max(maxUnmap, unmap);
             }
-            System.out.println("\n" + args[0] + " max resize: " + maxResize + ", map: " + maxMap + ", touch: " + maxTouch + ", unmap: " + maxUnmap);
+            System.out.println("\n" + args[0] + " options: " + Arrays.toString(OPTIONS)
+                    + " max resize: " + maxResize + ", map: " + maxMap + ", touch: " + maxTouch + ", unmap: " + maxUnmap
+                    + ", page faults map: " + mapFaults + ", touch: " + touchFaults);
 
         } finally {
             new File(name).delete();
         }
     }
+
+    // the minor plus major page faults of this process, or 0 if not available.
+    static long pageFaults() {
+        try {
+            String stat = new String(Files.readAllBytes(Paths.get("/proc/self/stat")));
+            // skip the command which can contain spaces.
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            // minflt and majflt are fields 10 and 12, counting from the pid as 1
+            return Long.parseLong(fields[7]) + Long.parseLong(fields[9]);
+        } catch (IOException | RuntimeException e) {
+            return 0;
+        }
+    }
 }
@@ -0,0 +1,80 @@
+/*
+ *     Copyright (C) 2015-2020 chronicle.software
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.openhft.chronicle.core.benchmark;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.time.SystemTimeProvider;
+import net.openhft.chronicle.core.time.ThreadUniqueTimeProvider;
+import net.openhft.chronicle.core.time.UniqueMicroTimeProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compares how unique timestamp providers scale as the number of threads increases.
+ * Run with -Dthreads=1,4,16,32 to choose the thread counts.
+ */
+@State(Scope.Benchmark)
+public class UniqueTimeMain {
+
+    public static void main(String... args) throws RunnerException {
+        int time = Jvm.getBoolean("longTest") ? 30 : 3;
+        System.out.println("measurementTime: " + time + " secs");
+        for (String threads : System.getProperty("threads", "1,4,16").split(",")) {
+            Options opt = new OptionsBuilder()
+                    .include(UniqueTimeMain.class.getSimpleName())
+                    .warmupIterations(3)
+                    .measurementIterations(5)
+                    .forks(1)
+                    .threads(Integer.parseInt(threads.trim()))
+                    .mode(Mode.AverageTime)
+                    .measurementTime(TimeValue.seconds(time))
+                    .timeUnit(TimeUnit.NANOSECONDS)
+                    .build();
+
+            new Runner(opt).run();
+        }
+    }
+
+    @Benchmark
+    public long systemTimeProvider_currentTimeNanos() {
+        return SystemTimeProvider.INSTANCE.currentTimeNanos();
+    }
+
+    @Benchmark
+    public long uniqueMicroTimeProvider_currentTimeMicros() {
+        return UniqueMicroTimeProvider.INSTANCE.currentTimeMicros();
+    }
+
+    @Benchmark
+    public long uniqueMicroTimeProvider_currentTimeNanos() {
+        return UniqueMicroTimeProvider.INSTANCE.currentTimeNanos();
+    }
+
+    @Benchmark
+    public long threadUniqueTimeProvider_currentTimeNanos() {
+        return ThreadUniqueTimeProvider.INSTANCE.currentTimeNanos();
+    }
+}
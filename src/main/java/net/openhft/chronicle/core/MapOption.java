@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core;
+
+import java.nio.channels.FileChannel;
+
+/**
+ * Options for {@link OS#map(FileChannel, FileChannel.MapMode, long, long, MapOption...)}.
+ * <p>
+ * Except for {@link #SYNC}, these are hints and are ignored where they are not supported.
+ */
+public enum MapOption {
+    /**
+     * Fault in every page when it is mapped, similar to <code>MAP_POPULATE</code>, so the first access to each page
+     * doesn't stall. Pages are faulted writable if the mode is <code>READ_WRITE</code>, without losing concurrent
+     * writes, however this marks every page dirty so a file with existing data is written back in full.
+     *
+     * @see OS#prefault(long, long, boolean)
+     */
+    PREFAULT,
+    /**
+     * Advise the region will be accessed sequentially.
+     */
+    SEQUENTIAL,
+    /**
+     * Advise the region will be accessed randomly.
+     */
+    RANDOM,
+    /**
+     * Advise the region will be needed soon, so the OS starts reading it in the background.
+     */
+    WILLNEED,
+    /**
+     * Use huge pages to reduce TLB misses. The start must be a multiple of {@link OS#hugePageSize()}, and the size is
+     * rounded up to a multiple of it. This advises transparent huge pages, and is required for files on hugetlbfs.
+     */
+    HUGE_PAGES,
+    /**
+     * Lock the pages in memory so they are never paged out. This is limited by <code>ulimit -l</code>.
+     */
+    LOCK,
+    /**
+     * Map with <code>MAP_SYNC</code> so writes to persistent memory on a DAX file system are durable without a sync.
+     * This requires Java 14+ and a file system which supports it, otherwise the map fails.
+     */
+    SYNC
+}
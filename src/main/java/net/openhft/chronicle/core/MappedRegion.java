@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A memory mapping which hasn't been unmapped, as recorded by {@link MappedRegions}.
+ */
+public final class MappedRegion {
+    private final long address;
+    private final long size;
+    @NotNull
+    private final String file;
+    @NotNull
+    private final String threadName;
+    private final long createdTimeMS;
+    @Nullable
+    private final StackTrace createdHere;
+
+    MappedRegion(long address, long size, @NotNull String file, @NotNull String threadName, long createdTimeMS, @Nullable StackTrace createdHere) {
+        this.address = address;
+        this.size = size;
+        this.file = file;
+        this.threadName = threadName;
+        this.createdTimeMS = createdTimeMS;
+        this.createdHere = createdHere;
+    }
+
+    public long address() {
+        return address;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the path of the file mapped, or "unknown" if it couldn't be determined.
+     */
+    @NotNull
+    public String file() {
+        return file;
+    }
+
+    /**
+     * @return the name of the thread which mapped it.
+     */
+    @NotNull
+    public String threadName() {
+        return threadName;
+    }
+
+    public long createdTimeMillis() {
+        return createdTimeMS;
+    }
+
+    public long ageMillis() {
+        return System.currentTimeMillis() - createdTimeMS;
+    }
+
+    /**
+     * @return where it was mapped, or null if resource tracing is not enabled.
+     */
+    @Nullable
+    public StackTrace createdHere() {
+        return createdHere;
+    }
+
+    @Override
+    public String toString() {
+        return "MappedRegion{" +
+                "address=0x" + Long.toHexString(address) +
+                ", size=" + size +
+                ", file='" + file + '\'' +
+                ", thread='" + threadName + '\'' +
+                ", ageMillis=" + ageMillis() +
+                '}';
+    }
+}
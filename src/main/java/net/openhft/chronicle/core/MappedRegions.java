@@ -0,0 +1,202 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core;
+
+import net.openhft.chronicle.core.io.BackgroundResourceReleaser;
+import org.jetbrains.annotations.NotNull;
+import sun.nio.ch.FileChannelImpl;
+
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A registry of the memory mappings made by {@link OS#map} and not yet unmapped by {@link OS#unmap(long, long)}, so
+ * the memory counted by {@link OS#memoryMapped()} can be broken down by file and thread, and mappings which are never
+ * unmapped can be found.
+ * <p>
+ * Where each region was mapped is only recorded if {@link Jvm#isResourceTracing()}. The registry is available over
+ * JMX as <code>chronicle:type=memory,name=mappings</code> after {@link #registerMBean()} is called, or at startup
+ * with <code>-Dmapped.regions.jmx=true</code>
+ */
+public enum MappedRegions implements MappedRegionsMBean {
+    INSTANCE;
+
+    private static final String UNKNOWN = "unknown";
+    private static final ConcurrentMap<Long, MappedRegion> REGIONS = new ConcurrentHashMap<>();
+    private static final Field PATH = Jvm.getFieldOrNull(FileChannelImpl.class, "path");
+    private static final ObjectName OBJECT_NAME = objectName();
+
+    static {
+        if (Jvm.getBoolean("mapped.regions.jmx"))
+            registerMBean();
+    }
+
+    private static ObjectName objectName() {
+        try {
+            return new ObjectName("chronicle:type=memory,name=mappings");
+        } catch (MalformedObjectNameException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    static void add(long address, long size, @NotNull FileChannel fileChannel) {
+        StackTrace createdHere = Jvm.isResourceTracing() ? new StackTrace("Mapped here") : null;
+        REGIONS.put(address, new MappedRegion(address, size, fileNameFor(fileChannel), Thread.currentThread().getName(),
+                System.currentTimeMillis(), createdHere));
+    }
+
+    static void remove(long address) {
+        REGIONS.remove(address);
+    }
+
+    @NotNull
+    private static String fileNameFor(@NotNull FileChannel fileChannel) {
+        if (PATH == null || !(fileChannel instanceof FileChannelImpl))
+            return UNKNOWN;
+        try {
+            Object path = PATH.get(fileChannel);
+            return path == null ? UNKNOWN : path.toString();
+        } catch (IllegalAccessException e) {
+            return UNKNOWN;
+        }
+    }
+
+    /**
+     * @return a copy of the regions currently mapped, oldest first.
+     */
+    @NotNull
+    public static List<MappedRegion> snapshot() {
+        List<MappedRegion> regions = new ArrayList<>(REGIONS.values());
+        regions.sort(Comparator.comparingLong(MappedRegion::createdTimeMillis));
+        return regions;
+    }
+
+    /**
+     * @return the bytes mapped per file, largest first.
+     */
+    @NotNull
+    public static Map<String, Long> sizeByFile() {
+        Map<String, Long> sizes = new HashMap<>();
+        for (MappedRegion region : REGIONS.values())
+            sizes.merge(region.file(), region.size(), Long::sum);
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        sizes.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(e -> sorted.put(e.getKey(), e.getValue()));
+        return sorted;
+    }
+
+    /**
+     * @return the regions mapped at least <code>minAgeMillis</code> ago, oldest first.
+     */
+    @NotNull
+    public static List<MappedRegion> olderThan(long minAgeMillis) {
+        List<MappedRegion> regions = snapshot();
+        regions.removeIf(r -> r.ageMillis() < minAgeMillis);
+        return regions;
+    }
+
+    public static int count() {
+        return REGIONS.size();
+    }
+
+    public static long totalSize() {
+        long total = 0;
+        for (MappedRegion region : REGIONS.values())
+            total += region.size();
+        return total;
+    }
+
+    /**
+     * Throws an AssertionError listing every region not unmapped, with where it was mapped if resource tracing is
+     * on. Unmaps pending in the {@link BackgroundResourceReleaser} are completed first. This is intended for the end
+     * of a test, after all the resources have been closed.
+     */
+    public static void assertMappingsUnmapped() {
+        BackgroundResourceReleaser.releasePendingResources();
+
+        AssertionError leaks = new AssertionError("Memory mappings not unmapped");
+        for (MappedRegion region : snapshot())
+            leaks.addSuppressed(new IllegalStateException("Not unmapped " + region, region.createdHere()));
+        if (leaks.getSuppressed().length > 0)
+            throw leaks;
+    }
+
+    public static void registerMBean() {
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (!mbs.isRegistered(OBJECT_NAME))
+                mbs.registerMBean(INSTANCE, OBJECT_NAME);
+        } catch (Exception e) {
+            Jvm.warn().on(MappedRegions.class, "Unable to register " + OBJECT_NAME, e);
+        }
+    }
+
+    public static void unregisterMBean() {
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (mbs.isRegistered(OBJECT_NAME))
+                mbs.unregisterMBean(OBJECT_NAME);
+        } catch (Exception e) {
+            Jvm.warn().on(MappedRegions.class, "Unable to unregister " + OBJECT_NAME, e);
+        }
+    }
+
+    @Override
+    public int getMappingCount() {
+        return count();
+    }
+
+    @Override
+    public long getMappedBytes() {
+        return totalSize();
+    }
+
+    @Override
+    public long getOldestAgeMillis() {
+        long oldest = 0;
+        for (MappedRegion region : REGIONS.values())
+            oldest = Math.max(oldest, region.ageMillis());
+        return oldest;
+    }
+
+    @Override
+    public String[] getFiles() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (MappedRegion region : REGIONS.values())
+            counts.merge(region.file(), 1, Integer::sum);
+        return sizeByFile().entrySet().stream()
+                .map(e -> e.getKey() + ": " + (e.getValue() >> 10) + " KiB in " + counts.getOrDefault(e.getKey(), 0) + " regions")
+                .toArray(String[]::new);
+    }
+
+    @Override
+    public String[] getRegions() {
+        return snapshot().stream()
+                .map(MappedRegion::toString)
+                .toArray(String[]::new);
+    }
+}
@@ -324,6 +324,52 @@ public enum Maths {
         return agitate(hash);
     }
 
+    /**
+     * Hash bytes as ISO-8859-1 text, giving the same result as {@link #hash32(String)} of the decoded text.
+     */
+    public static int hashBytes32(@NotNull byte[] bytes, int offset, int length) {
+        long h = hashBytes64(bytes, offset, length);
+        h ^= h >> 32;
+        return (int) h;
+    }
+
+    /**
+     * Hash bytes in native memory as ISO-8859-1 text, giving the same result as {@link #hash32(String)} of
+     * the decoded text.
+     */
+    public static int hashBytes32(long address, int length) {
+        long h = hashBytes64(address, length);
+        h ^= h >> 32;
+        return (int) h;
+    }
+
+    /**
+     * @see #hashBytes32(byte[], int, int)
+     */
+    public static long hashBytes64(@NotNull byte[] bytes, int offset, int length) {
+        int mask = latin1Mask();
+        long hash = 0;
+        for (int i = offset, end = offset + length; i < end; i++)
+            hash = hash * 0x32246e3d + (bytes[i] & mask);
+        return agitate(hash);
+    }
+
+    /**
+     * @see #hashBytes32(long, int)
+     */
+    public static long hashBytes64(long address, int length) {
+        int mask = latin1Mask();
+        long hash = 0;
+        for (long i = address, end = address + length; i < end; i++)
+            hash = hash * 0x32246e3d + (UnsafeMemory.UNSAFE.getByte(i) & mask);
+        return agitate(hash);
+    }
+
+    // hash64(String) adds the chars on Java 8, but the signed Latin-1 bytes of a compact String on Java 9+
+    private static int latin1Mask() {
+        return Jvm.isJava9Plus() ? ~0 : 0xFF;
+    }
+
     /**
      * Returns rounded down log<sub>2</sub>{@code num}, e. g.: {@code intLog2(1) == 0},
      * {@code intLog2(2) == 1}, {@code intLog2(7) == 2}, {@code intLog2(8) == 3}, etc.
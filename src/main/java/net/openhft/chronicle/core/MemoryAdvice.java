@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core;
+
+/**
+ * Hints passed to <code>madvise</code> about how a region of memory will be used.
+ *
+ * @see OS#madvise(long, long, MemoryAdvice)
+ */
+public enum MemoryAdvice {
+    NORMAL(0),
+    /**
+     * Pages will be accessed in random order, so read ahead is less useful.
+     */
+    RANDOM(1),
+    /**
+     * Pages will be accessed in order, so read ahead aggressively and free pages soon after they are accessed.
+     */
+    SEQUENTIAL(2),
+    /**
+     * Pages will be accessed soon, so start reading them in.
+     */
+    WILLNEED(3),
+    /**
+     * Pages won't be accessed soon, so they can be freed. Private and anonymous pages are zeroed.
+     */
+    DONTNEED(4),
+    /**
+     * Back the region with transparent huge pages where possible. Linux only.
+     */
+    HUGEPAGE(14),
+    NOHUGEPAGE(15),
+    /**
+     * Fault in the pages readable without reading them from Java. Linux 5.14+ only.
+     */
+    POPULATE_READ(22),
+    /**
+     * Fault in the pages writable without writing to them from Java, which marks them dirty. Linux 5.14+ only.
+     */
+    POPULATE_WRITE(23);
+
+    final int value;
+
+    MemoryAdvice(int value) {
+        this.value = value;
+    }
+
+    boolean isLinuxOnly() {
+        return value > DONTNEED.value;
+    }
+}
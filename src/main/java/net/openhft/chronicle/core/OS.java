@@ -18,6 +18,7 @@
 
 package net.openhft.chronicle.core;
 
+import net.openhft.chronicle.core.internal.PosixMemory;
 import net.openhft.chronicle.core.util.ThrowingFunction;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -32,6 +33,8 @@ import java.lang.reflect.Method;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Scanner;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -80,6 +83,7 @@ public enum OS {
     public static final int SAFE_PAGE_SIZE = 64 << 10;
     private static int PAGE_SIZE; // avoid circular initialisation
     private static int MAP_ALIGNMENT;
+    private static long HUGE_PAGE_SIZE;
 
     static {
         // make sure it is initialised first.
@@ -348,13 +352,58 @@ public enum OS {
         return map0(fileChannel, imodeFor(mode), mapAlign(start), pageAlign(size));
     }
 
-    private static long invokeFileChannelMap0(@NotNull MethodHandle map0, @NotNull FileChannel fileChannel, int imode, long start, long size,
+    /**
+     * Map a region of a file into memory with options for huge pages, prefaulting, access hints and locking.
+     * <p>
+     * With {@link MapOption#HUGE_PAGES} the size is rounded up to {@link #hugePageAlign(long)} and this size should
+     * be passed to {@link #unmap(long, long)}.
+     *
+     * @param fileChannel to map
+     * @param mode        of access
+     * @param start       offset within a file
+     * @param size        of region to map.
+     * @param options     to apply to the mapping, hints which aren't supported are ignored.
+     * @return the address of the memory mapping.
+     * @throws IOException              if the mapping fails
+     * @throws IllegalArgumentException if the arguments are not valid
+     */
+    public static long map(@NotNull FileChannel fileChannel, FileChannel.MapMode mode, long start, long size, @NotNull MapOption... options)
+            throws IOException, IllegalArgumentException {
+        EnumSet<MapOption> set = EnumSet.noneOf(MapOption.class);
+        Collections.addAll(set, options);
+        boolean sync = set.contains(MapOption.SYNC);
+        if (sync && (!Jvm.isJava14Plus() || mode != FileChannel.MapMode.READ_WRITE))
+            throw new IllegalArgumentException("SYNC requires Java 14+ and READ_WRITE mode");
+        if (set.contains(MapOption.HUGE_PAGES)) {
+            if (start % hugePageSize() != 0)
+                throw new IllegalArgumentException("start must be a multiple of the huge page size " + hugePageSize() + ", was " + start);
+            size = hugePageAlign(size);
+        }
+        if (isWindows() && size > 4L << 30)
+            throw new IllegalArgumentException("Mapping more than 4096 MiB is unusable on Windows, size = " + (size >> 20) + " MiB");
+        long alignedSize = pageAlign(size);
+        long address = map0(fileChannel, imodeFor(mode), mapAlign(start), alignedSize, sync);
+
+        if (set.contains(MapOption.HUGE_PAGES))
+            madvise(address, alignedSize, MemoryAdvice.HUGEPAGE);
+        if (set.contains(MapOption.SEQUENTIAL))
+            madvise(address, alignedSize, MemoryAdvice.SEQUENTIAL);
+        if (set.contains(MapOption.RANDOM))
+            madvise(address, alignedSize, MemoryAdvice.RANDOM);
+        if (set.contains(MapOption.WILLNEED) || set.contains(MapOption.PREFAULT))
+            madvise(address, alignedSize, MemoryAdvice.WILLNEED);
+        if (set.contains(MapOption.PREFAULT))
+            prefault(address, alignedSize, mode == FileChannel.MapMode.READ_WRITE);
+        if (set.contains(MapOption.LOCK) && !mlock(address, alignedSize))
+            Jvm.warn().on(OS.class, "Unable to lock " + (alignedSize >> 10) + " KiB in memory, check ulimit -l");
+        return address;
+    }
+
+    private static long invokeFileChannelMap0(@NotNull MethodHandle map0, @NotNull FileChannel fileChannel, int imode, long start, long size, boolean sync,
                                               @NotNull ThrowingFunction<OutOfMemoryError, Long, IOException> errorHandler) throws IOException {
         try {
-            // For now, access is assumed to be non-synchronous
-            // TODO - Support passing/deducing synchronous flag externally
             if (Jvm.isJava14Plus())
-                return (long) map0.invokeExact((FileChannelImpl) fileChannel, imode, start, size, false);
+                return (long) map0.invokeExact((FileChannelImpl) fileChannel, imode, start, size, sync);
             else
                 return (long) map0.invokeExact((FileChannelImpl) fileChannel, imode, start, size);
         } catch (IllegalAccessException e) {
@@ -371,16 +420,21 @@ public enum OS {
     }
 
     static long map0(@NotNull FileChannel fileChannel, int imode, long start, long size) throws IOException {
+        return map0(fileChannel, imode, start, size, false);
+    }
+
+    static long map0(@NotNull FileChannel fileChannel, int imode, long start, long size, boolean sync) throws IOException {
         MethodHandle map0 = MAP0_MH.get(fileChannel.getClass());
-        final long address = invokeFileChannelMap0(map0, fileChannel, imode, start, size, oome1 -> {
+        final long address = invokeFileChannelMap0(map0, fileChannel, imode, start, size, sync, oome1 -> {
             System.gc();
             Jvm.pause(100);
 
-            return invokeFileChannelMap0(map0, fileChannel, imode, start, size, oome2 -> {
+            return invokeFileChannelMap0(map0, fileChannel, imode, start, size, sync, oome2 -> {
                 throw new IOException("Map failed", oome2);
             });
         });
         memoryMapped.addAndGet(size);
+        MappedRegions.add(address, size, fileChannel);
         return address;
     }
 
@@ -396,15 +450,134 @@ public enum OS {
             final long size2 = pageAlign(size);
             int n = (int) UNMAPP0_MH.invokeExact(address, size2);
             memoryMapped.addAndGet(-size2);
+            MappedRegions.remove(address);
         } catch (Throwable e) {
             throw asAnIOException(e);
         }
     }
 
+    /**
+     * @return the total bytes mapped
+     * @see MappedRegions for a break down by file
+     */
     public static long memoryMapped() {
         return memoryMapped.get();
     }
 
+    /**
+     * Give the OS a hint about how a region of memory will be used.
+     *
+     * @param address page aligned start of the region
+     * @param size    of the region
+     * @param advice  to give
+     * @return true if the advice was accepted, false if it isn't supported or failed.
+     */
+    public static boolean madvise(long address, long size, @NotNull MemoryAdvice advice) {
+        if (!PosixMemory.isAvailable() || (advice.isLinuxOnly() && !isLinux()))
+            return false;
+        if (PosixMemory.madvise(address, size, advice.value) == 0)
+            return true;
+        Jvm.debug().on(OS.class, "madvise " + advice + " failed, errno=" + PosixMemory.lastError());
+        return false;
+    }
+
+    /**
+     * Lock a region of memory so it is never paged out. The region is unlocked when it is unmapped or freed.
+     *
+     * @return true if the region was locked.
+     */
+    public static boolean mlock(long address, long size) {
+        if (!PosixMemory.isAvailable())
+            return false;
+        if (PosixMemory.mlock(address, size) == 0)
+            return true;
+        Jvm.debug().on(OS.class, "mlock failed, errno=" + PosixMemory.lastError());
+        return false;
+    }
+
+    /**
+     * @return true if the region was unlocked.
+     */
+    public static boolean munlock(long address, long size) {
+        return PosixMemory.isAvailable() && PosixMemory.munlock(address, size) == 0;
+    }
+
+    /**
+     * Touch every page in a region so it is faulted in before it is used.
+     * <p>
+     * Faulting for write uses <code>MADV_POPULATE_WRITE</code> where the kernel supports it (Linux 5.14+), otherwise
+     * an int in each page is compare-and-swapped with the value it holds, so a concurrent store by another thread or
+     * process is never lost. Either way, every page of a file mapping is marked dirty and will be written back, so for
+     * a file with existing data consider faulting for read only.
+     *
+     * @param write whether to fault each page writable, otherwise each page is only read.
+     */
+    public static void prefault(long address, long size, boolean write) {
+        if (size <= 0)
+            return;
+        long pageStart = address & -pageSize();
+        if (write && madvise(pageStart, address + size - pageStart, MemoryAdvice.POPULATE_WRITE))
+            return;
+        touchPages(address, size, write);
+    }
+
+    static void touchPages(long address, long size, boolean write) {
+        int pageSize = pageSize();
+        Memory memory = memory();
+        long end = address + size;
+        // the first int in the region, then the first int of each page after.
+        long first = (address + 3) & ~3L;
+        if (write) {
+            for (long a = first; a + 4 <= end; a = (a & -pageSize) + pageSize) {
+                int value;
+                do {
+                    value = memory.readVolatileInt(a);
+                } while (!memory.compareAndSwapInt(a, value, value));
+            }
+        } else {
+            int sum = 0;
+            for (long a = first; a + 4 <= end; a = (a & -pageSize) + pageSize)
+                sum += memory.readInt(a);
+            // so the reads can't be eliminated.
+            if (sum == Integer.MIN_VALUE)
+                Jvm.debug().on(OS.class, "prefault");
+        }
+    }
+
+    /**
+     * @return the size of a huge page, or the page size if huge pages are not available.
+     */
+    public static long hugePageSize() {
+        if (HUGE_PAGE_SIZE == 0)
+            HUGE_PAGE_SIZE = hugePageSize0();
+        return HUGE_PAGE_SIZE;
+    }
+
+    private static long hugePageSize0() {
+        if (isLinux()) {
+            try (Scanner scanner = new Scanner(new File("/proc/meminfo"))) {
+                while (scanner.hasNextLine()) {
+                    String line = scanner.nextLine();
+                    if (line.startsWith("Hugepagesize:"))
+                        return Long.parseLong(line.replaceAll("\\D+", "")) << 10;
+                }
+            } catch (IOException | NumberFormatException e) {
+                Jvm.debug().on(OS.class, e);
+            }
+        }
+        return pageSize();
+    }
+
+    /**
+     * Align the size to a huge page boundary
+     *
+     * @see #hugePageSize()
+     */
+    public static long hugePageAlign(long size) {
+        final long mask = hugePageSize() - 1L;
+        return (size + mask) & ~mask;
+    }
+
     @NotNull
     private static IOException asAnIOException(Throwable e) {
         if (e instanceof InvocationTargetException)
@@ -19,6 +19,7 @@
 package net.openhft.chronicle.core;
 
 import net.openhft.chronicle.core.annotation.ForceInline;
+import net.openhft.chronicle.core.internal.PosixMemory;
 import org.jetbrains.annotations.NotNull;
 import sun.misc.Unsafe;
 
@@ -286,6 +287,48 @@ public class UnsafeMemory implements Memory {
         return address;
     }
 
+    /**
+     * Allocate native memory backed by transparent huge pages where available, to reduce TLB misses on large buffers.
+     * The memory is mapped anonymously rather than allocated from the heap, and where this isn't supported it falls
+     * back to {@link #allocate(long)}. Either way, it must be freed with {@link #freeHugePages(long, long)}.
+     *
+     * @param capacity to allocate, rounded up to {@link OS#hugePageSize()}
+     * @param lock     whether to lock the memory so it is never paged out
+     * @return the address allocated
+     */
+    public long allocateHugePages(long capacity, boolean lock) throws IllegalArgumentException {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        if (!PosixMemory.isAvailable())
+            return allocate(capacity);
+        long size = OS.hugePageAlign(capacity);
+        long address = PosixMemory.mmap(0, size, PosixMemory.PROT_READ | PosixMemory.PROT_WRITE,
+                PosixMemory.MAP_PRIVATE | PosixMemory.MAP_ANONYMOUS, -1, 0);
+        if (address == PosixMemory.MAP_FAILED)
+            throw new OutOfMemoryError("Not enough free native memory, capacity attempted: " + size / 1024 + " KiB, errno=" + PosixMemory.lastError());
+        OS.madvise(address, size, MemoryAdvice.HUGEPAGE);
+        if (lock)
+            OS.mlock(address, size);
+        nativeMemoryUsed.addAndGet(size);
+        return address;
+    }
+
+    /**
+     * Free memory allocated with {@link #allocateHugePages(long, boolean)}
+     *
+     * @param capacity the capacity passed when it was allocated
+     */
+    public void freeHugePages(long address, long capacity) {
+        if (!PosixMemory.isAvailable()) {
+            freeMemory(address, capacity);
+            return;
+        }
+        long size = OS.hugePageAlign(capacity);
+        if (address != 0 && PosixMemory.munmap(address, size) != 0)
+            Jvm.warn().on(UnsafeMemory.class, "Failed to free huge pages, errno=" + PosixMemory.lastError());
+        nativeMemoryUsed.addAndGet(-size);
+    }
+
     @Override
     public long nativeMemoryUsed() {
         return nativeMemoryUsed.get();
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.internal;
+
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.OS;
+
+/**
+ * Calls to the C library for memory hints and locking, bound with JNA direct mapping.
+ * <p>
+ * JNA is an optional dependency, so if it isn't on the class path, or this isn't a 64-bit Linux or MacOSX,
+ * {@link #isAvailable()} returns false and none of the native methods may be called. Addresses and sizes are passed as
+ * <code>long</code> which matches <code>void *</code> and <code>size_t</code> on 64-bit platforms.
+ */
+public enum PosixMemory {
+    ;
+    public static final int PROT_READ = 0x1;
+    public static final int PROT_WRITE = 0x2;
+    public static final int MAP_PRIVATE = 0x02;
+    public static final int MAP_ANONYMOUS = OS.isMacOSX() ? 0x1000 : 0x20;
+    public static final long MAP_FAILED = -1L;
+
+    private static final boolean AVAILABLE = register();
+
+    private static boolean register() {
+        if (!OS.is64Bit() || !(OS.isLinux() || OS.isMacOSX()))
+            return false;
+        try {
+            Native.register(PosixMemory.class, Platform.C_LIBRARY_NAME);
+            return true;
+        } catch (Throwable t) {
+            Jvm.debug().on(PosixMemory.class, "Native memory calls are not available " + t);
+            return false;
+        }
+    }
+
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * @return the errno of the last native call on this thread
+     */
+    public static int lastError() {
+        return Native.getLastError();
+    }
+
+    public static native int madvise(long address, long length, int advice);
+
+    public static native int mlock(long address, long length);
+
+    public static native int munlock(long address, long length);
+
+    public static native long mmap(long address, long length, int prot, int flags, int fd, long offset);
+
+    public static native int munmap(long address, long length);
+}
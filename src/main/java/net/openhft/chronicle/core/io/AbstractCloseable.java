@@ -22,12 +22,18 @@ import net.openhft.chronicle.core.StackTrace;
 import net.openhft.chronicle.core.UnsafeMemory;
 import net.openhft.chronicle.core.onoes.ExceptionHandler;
 import net.openhft.chronicle.core.onoes.Slf4jExceptionHandler;
-import net.openhft.chronicle.core.util.WeakIdentityHashMap;
+import net.openhft.chronicle.core.util.StripedWeakIdentitySet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
-import static net.openhft.chronicle.core.io.BackgroundResourceReleaser.BACKGROUND_RESOURCE_RELEASER;
 import static net.openhft.chronicle.core.io.BackgroundResourceReleaser.BG_RELEASER;
 import static net.openhft.chronicle.core.io.TracingReferenceCounted.asString;
 
@@ -40,9 +46,17 @@ public abstract class AbstractCloseable implements CloseableTracer, ReferenceOwn
     private static final int STATE_CLOSING = ~0;
     private static final int STATE_CLOSED = 1;
     static volatile Set<CloseableTracer> CLOSEABLE_SET;
+    // trace one in this many closeables, and only those of classes which pass the filter if set.
+    private static volatile int SAMPLE_ONE_IN;
+    @Nullable
+    private static volatile Predicate<Class<?>> TRACED_CLASSES;
 
     static {
-        enableCloseableTracing();
+        enableSampledCloseableTracing(Math.max(1, Integer.getInteger("closeable.tracing.sample", 1)),
+                tracedClasses(System.getProperty("closeable.tracing.classes", "")));
+        long reportSecs = Long.getLong("closeable.leak.report.secs", 0);
+        if (reportSecs > 0)
+            CloseableLeakReporter.start(reportSecs, TimeUnit.SECONDS);
         CLOSED_OFFSET = UnsafeMemory.unsafeObjectFieldOffset(Jvm.getField(AbstractCloseable.class, "closed"));
     }
 
@@ -54,17 +68,98 @@ public abstract class AbstractCloseable implements CloseableTracer, ReferenceOwn
     private int referenceId;
 
     protected AbstractCloseable() {
-        createdHere = Jvm.isResourceTracing() ? new StackTrace(getClass() + " - Created Here") : null;
+        boolean traced = isTraced(getClass());
+        createdHere = traced && Jvm.isResourceTracing() ? new StackTrace(getClass() + " - Created Here") : null;
 
         Set<CloseableTracer> set = CLOSEABLE_SET;
-        if (set != null)
+        if (traced && set != null)
             set.add(this);
     }
 
+    /**
+     * Trace every closeable created from now on.
+     */
     public static void enableCloseableTracing() {
-        CLOSEABLE_SET =
-                Collections.newSetFromMap(
-                        new WeakIdentityHashMap<>());
+        enableSampledCloseableTracing(1, null);
+    }
+
+    /**
+     * Trace a sample of the closeables created from now on, to keep leak detection on where tracing every closeable
+     * would cost too much. Untraced closeables are not checked by {@link #assertCloseablesClosed()} and don't record
+     * where they were created or closed even if {@link Jvm#isResourceTracing()}
+     * <p>
+     * This can be set on start up with <code>-Dcloseable.tracing.sample=N</code> and
+     * <code>-Dcloseable.tracing.classes=prefix1,prefix2</code>
+     *
+     * @param sampleOneIn   trace one in this many closeables chosen at random, 1 traces all of them
+     * @param tracedClasses only trace closeables of classes which pass this, or all classes if null
+     */
+    public static void enableSampledCloseableTracing(int sampleOneIn, @Nullable Predicate<Class<?>> tracedClasses) {
+        if (sampleOneIn < 1)
+            throw new IllegalArgumentException("sampleOneIn must be at least 1, was " + sampleOneIn);
+        SAMPLE_ONE_IN = sampleOneIn;
+        TRACED_CLASSES = tracedClasses;
+        CLOSEABLE_SET = new StripedWeakIdentitySet<>();
+    }
+
+    @Nullable
+    static Predicate<Class<?>> tracedClasses(@NotNull String prefixes) {
+        if (prefixes.trim().isEmpty())
+            return null;
+        String[] split = prefixes.trim().split(" *, *");
+        return c -> {
+            String name = c.getName();
+            for (String prefix : split)
+                if (name.startsWith(prefix))
+                    return true;
+            return false;
+        };
+    }
+
+    static boolean isTraced(Class<?> aClass) {
+        Predicate<Class<?>> tracedClasses = TRACED_CLASSES;
+        if (tracedClasses != null && !tracedClasses.test(aClass))
+            return false;
+        int sampleOneIn = SAMPLE_ONE_IN;
+        return sampleOneIn <= 1 || ThreadLocalRandom.current().nextInt(sampleOneIn) == 0;
+    }
+
+    /**
+     * @return one in how many closeables are traced
+     */
+    public static int closeableTracingSample() {
+        return SAMPLE_ONE_IN;
+    }
+
+    /**
+     * @return the number of traced closeables not yet closed by class name, most first.
+     */
+    @NotNull
+    public static Map<String, Integer> openCloseablesByClass() {
+        Set<CloseableTracer> set = CLOSEABLE_SET;
+        Map<String, Integer> counts = new HashMap<>();
+        if (set != null)
+            for (CloseableTracer key : set)
+                if (key != null && !key.isClosing())
+                    counts.merge(key.getClass().getName(), 1, Integer::sum);
+        Map<String, Integer> sorted = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .forEach(e -> sorted.put(e.getKey(), e.getValue()));
+        return sorted;
+    }
+
+    /**
+     * Periodically log the traced closeables still open by class, and how that changed, so a class which keeps
+     * growing can be spotted while tracing is sampled in production. This can be started with
+     * <code>-Dcloseable.leak.report.secs=N</code>
+     */
+    public static void startLeakReport(long period, @NotNull TimeUnit unit) {
+        CloseableLeakReporter.start(period, unit);
+    }
+
+    public static void stopLeakReport() {
+        CloseableLeakReporter.stop();
     }
 
     public static void disableCloseableTracing() {
@@ -82,28 +177,27 @@ public abstract class AbstractCloseable implements CloseableTracer, ReferenceOwn
 
         AssertionError openFiles = new AssertionError("Closeables still open");
 
-        synchronized (traceSet) {
-            for (CloseableTracer key : traceSet) {
-                if (key != null && !key.isClosing()) {
-                    Throwable t;
-                    try {
-                        if (key instanceof ReferenceCountedTracer) {
-                            ((ReferenceCountedTracer) key).throwExceptionIfNotReleased();
-                        }
-                        t = key.createdHere();
-                    } catch (IllegalStateException e) {
-                        t = e;
-                    }
-                    IllegalStateException exception = new IllegalStateException("Not closed " + asString(key), t);
-                    Thread.yield();
-                    if (key.isClosed()) {
-                        System.out.println(exception.getMessage() + " is now closed...");
-                        continue;
+        // the set is concurrent, so this doesn't block closeables being created.
+        for (CloseableTracer key : traceSet) {
+            if (key != null && !key.isClosing()) {
+                Throwable t;
+                try {
+                    if (key instanceof ReferenceCountedTracer) {
+                        ((ReferenceCountedTracer) key).throwExceptionIfNotReleased();
                     }
-                    exception.printStackTrace();
-                    openFiles.addSuppressed(exception);
-                    key.close();
+                    t = key.createdHere();
+                } catch (IllegalStateException e) {
+                    t = e;
+                }
+                IllegalStateException exception = new IllegalStateException("Not closed " + asString(key), t);
+                Thread.yield();
+                if (key.isClosed()) {
+                    System.out.println(exception.getMessage() + " is now closed...");
+                    continue;
                 }
+                exception.printStackTrace();
+                openFiles.addSuppressed(exception);
+                key.close();
             }
         }
 
@@ -140,7 +234,7 @@ public abstract class AbstractCloseable implements CloseableTracer, ReferenceOwn
             }
             return;
         }
-        closedHere = Jvm.isResourceTracing() ? new StackTrace(getClass() + " - Closed here") : null;
+        closedHere = Jvm.isResourceTracing() && createdHere != null ? new StackTrace(getClass() + " - Closed here") : null;
         if (BG_RELEASER && shouldPerformCloseInBackground()) {
             BackgroundResourceReleaser.release(this);
             return;
@@ -150,7 +244,7 @@ public abstract class AbstractCloseable implements CloseableTracer, ReferenceOwn
         callPerformClose();
         long time = System.nanoTime() - start;
         if (time >= WARN_NS &&
-                !Thread.currentThread().getName().equals(BACKGROUND_RESOURCE_RELEASER))
+                !BackgroundResourceReleaser.isReleaserThread())
             Jvm.perf().on(getClass(), "Took " + time / 1000_000 + " ms to performClose");
     }
 
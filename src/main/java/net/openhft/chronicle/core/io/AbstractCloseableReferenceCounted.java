@@ -17,10 +17,15 @@ public abstract class AbstractCloseableReferenceCounted
 
     public AbstractCloseableReferenceCounted() {
         Set<CloseableTracer> set = CLOSEABLE_SET;
-        if (set != null)
+        if (set != null && traced)
             set.add(this);
     }
 
+    @Override
+    boolean isTraced() {
+        return AbstractCloseable.isTraced(getClass());
+    }
+
     @Override
     public void reserve(ReferenceOwner id) throws IllegalStateException {
         throwExceptionIfClosed();
@@ -63,7 +68,7 @@ public abstract class AbstractCloseableReferenceCounted
 
     protected void setClosed() {
         closed = true;
-        closedHere = Jvm.isResourceTracing() ? new StackTrace(getClass() + " - Closed here") : null;
+        closedHere = traced && Jvm.isResourceTracing() ? new StackTrace(getClass() + " - Closed here") : null;
     }
 
     @Override
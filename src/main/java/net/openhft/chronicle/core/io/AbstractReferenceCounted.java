@@ -17,6 +17,7 @@ public abstract class AbstractReferenceCounted implements ReferenceCountedTracer
     static volatile Set<AbstractReferenceCounted> REFERENCE_COUNTED_SET;
     private transient volatile Thread usedByThread;
     private transient final ReferenceCountedTracer referenceCounted;
+    transient final boolean traced;
     private final int referenceId;
 
     protected AbstractReferenceCounted() {
@@ -28,13 +29,21 @@ public abstract class AbstractReferenceCounted implements ReferenceCountedTracer
                 ? this::backgroundPerformRelease
                 : this::inThreadPerformRelease;
         referenceId = IOTools.counter(getClass()).incrementAndGet();
-        referenceCounted = ReferenceCountedTracer.onReleased(performRelease, referenceName());
+        traced = isTraced();
+        referenceCounted = ReferenceCountedTracer.onReleased(performRelease, referenceName(), traced);
 
         Set<AbstractReferenceCounted> set = REFERENCE_COUNTED_SET;
-        if (monitored && set != null)
+        if (monitored && traced && set != null)
             set.add(this);
     }
 
+    /**
+     * Called once from the constructor to decide whether this resource is traced.
+     */
+    boolean isTraced() {
+        return true;
+    }
+
     public static void enableReferenceTracing() {
         AbstractCloseable.enableCloseableTracing();
         REFERENCE_COUNTED_SET =
@@ -1,37 +1,78 @@
 package net.openhft.chronicle.core.io;
 
 import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.util.ConcurrentHistogram;
+import net.openhft.chronicle.core.util.Histogram;
+import org.jetbrains.annotations.NotNull;
 
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedTransferQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Closes and releases resources on background threads, so slow operations such as unmapping don't happen on the
+ * caller's thread.
+ * <p>
+ * The number of threads is set with <code>-Dbackground.releaser.threads</code> (default 1) and the number of
+ * resources which can be queued with <code>-Dbackground.releaser.capacity</code> (default 1024), beyond which
+ * resources are released on the caller's thread. Each thread drains resources in batches from a lock free queue.
+ */
 public enum BackgroundResourceReleaser {
     ;
     public static final String BACKGROUND_RESOURCE_RELEASER = "background~resource~releaser";
     static final boolean BG_RELEASER = Jvm.getBoolean("background.releaser", true);
-    private static final BlockingQueue<Object> RESOURCES = new ArrayBlockingQueue<>(128);
+    static final int THREADS = Math.max(1, Integer.getInteger("background.releaser.threads", 1));
+    static final int CAPACITY = Math.max(1, Integer.getInteger("background.releaser.capacity", 1024));
+    private static final int BATCH = 64;
+    private static final BlockingQueue<Object> RESOURCES = new LinkedTransferQueue<>();
+    private static final AtomicInteger QUEUED = new AtomicInteger();
     private static final AtomicLong COUNTER = new AtomicLong();
-    private static final Thread RELEASER = new Thread(BackgroundResourceReleaser::runReleaseResources,
-            BACKGROUND_RESOURCE_RELEASER);
+    private static final AtomicInteger MAX_QUEUED = new AtomicInteger();
+    private static final LongAdder RELEASED = new LongAdder();
+    private static final LongAdder SYNCHRONOUS = new LongAdder();
+    private static final ConcurrentHistogram RELEASE_LATENCY = new ConcurrentHistogram(22, 3, 1000.0, THREADS * 2);
+    private static final Thread[] RELEASERS = new Thread[THREADS];
 
     static {
-        RELEASER.setDaemon(true);
-        RELEASER.start();
+        for (int i = 0; i < THREADS; i++) {
+            // the name is checked by AbstractCloseable so it doesn't warn about slow closes on these threads.
+            Thread releaser = new Thread(BackgroundResourceReleaser::runReleaseResources,
+                    i == 0 ? BACKGROUND_RESOURCE_RELEASER : BACKGROUND_RESOURCE_RELEASER + '~' + i);
+            releaser.setDaemon(true);
+            releaser.start();
+            RELEASERS[i] = releaser;
+        }
     }
 
     private static void runReleaseResources() {
+        List<Object> batch = new ArrayList<>(BATCH);
         try {
             for (; ; ) {
-                Object o = RESOURCES.take();
-                performRelease(o);
+                batch.add(RESOURCES.take());
+                // only take a fair share, so other threads and releasePendingResources() can help.
+                RESOURCES.drainTo(batch, Math.min(BATCH - 1, QUEUED.get() / (THREADS + 1)));
+                QUEUED.addAndGet(-batch.size());
+                for (Object o : batch)
+                    performRelease(o);
+                batch.clear();
             }
         } catch (InterruptedException e) {
             Jvm.warn().on(BackgroundResourceReleaser.class, "Died on interrupt");
         }
     }
 
+    /**
+     * @return whether the current thread is one of the releaser threads
+     */
+    public static boolean isReleaserThread() {
+        return Thread.currentThread().getName().startsWith(BACKGROUND_RESOURCE_RELEASER);
+    }
+
     public static void release(AbstractCloseable closeable) {
         release0(closeable);
     }
@@ -46,17 +87,30 @@ public enum BackgroundResourceReleaser {
 
     private static void release0(Object o) {
         COUNTER.incrementAndGet();
-        if (RESOURCES.offer(o))
+        int queued = QUEUED.incrementAndGet();
+        if (queued <= CAPACITY) {
+            updateMaxQueued(queued);
+            RESOURCES.add(o);
             return;
+        }
+        QUEUED.decrementAndGet();
+        SYNCHRONOUS.increment();
         performRelease(o);
     }
 
+    private static void updateMaxQueued(int queued) {
+        for (int max; queued > (max = MAX_QUEUED.get()); )
+            if (MAX_QUEUED.compareAndSet(max, queued))
+                break;
+    }
+
     public static void releasePendingResources() {
         try {
             for (; ; ) {
                 Object o = RESOURCES.poll(1, TimeUnit.MILLISECONDS);
                 if (o == null)
                     break;
+                QUEUED.decrementAndGet();
                 performRelease(o);
             }
 
@@ -72,6 +126,7 @@ public enum BackgroundResourceReleaser {
     }
 
     private static void performRelease(Object o) {
+        long start = System.nanoTime();
         try {
             if (o instanceof AbstractCloseable)
                 ((AbstractCloseable) o).callPerformClose();
@@ -84,7 +139,53 @@ public enum BackgroundResourceReleaser {
         } catch (Throwable e) {
             Jvm.warn().on(BackgroundResourceReleaser.class, "Failed in release/close", e);
         } finally {
+            RELEASE_LATENCY.sampleNanos(System.nanoTime() - start);
+            RELEASED.increment();
             COUNTER.decrementAndGet();
         }
     }
+
+    /**
+     * @return the number of threads releasing resources
+     */
+    public static int threads() {
+        return THREADS;
+    }
+
+    /**
+     * @return the number of resources waiting to be released
+     */
+    public static int queueDepth() {
+        return Math.max(0, QUEUED.get());
+    }
+
+    public static int maxQueueDepth() {
+        return MAX_QUEUED.get();
+    }
+
+    public static long releasedCount() {
+        return RELEASED.sum();
+    }
+
+    /**
+     * @return the number of resources released on the caller's thread because the queue was full.
+     */
+    public static long synchronousReleaseCount() {
+        return SYNCHRONOUS.sum();
+    }
+
+    /**
+     * @return a histogram of the time taken to release each resource in nano-seconds.
+     */
+    @NotNull
+    public static Histogram releaseLatency() {
+        return RELEASE_LATENCY.snapshot();
+    }
+
+    public static void resetStats() {
+        MAX_QUEUED.set(0);
+        RELEASED.reset();
+        SYNCHRONOUS.reset();
+        RELEASE_LATENCY.reset();
+    }
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.io;
+
+import net.openhft.chronicle.core.Jvm;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Logs the traced closeables still open by class on a background thread.
+ */
+enum CloseableLeakReporter {
+    ;
+    static final String LEAK_REPORT = "closeable~leak~report";
+    private static final int MAX_CLASSES = 20;
+    @Nullable
+    private static volatile Thread reporter;
+
+    static synchronized void start(long period, @NotNull TimeUnit unit) {
+        if (period <= 0)
+            throw new IllegalArgumentException("period must be positive, was " + period);
+        stop();
+        long periodNS = unit.toNanos(period);
+        Thread thread = new Thread(() -> run(periodNS), LEAK_REPORT);
+        thread.setDaemon(true);
+        reporter = thread;
+        thread.start();
+    }
+
+    static synchronized void stop() {
+        Thread thread = reporter;
+        if (thread == null)
+            return;
+        reporter = null;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void run(long periodNS) {
+        Thread self = Thread.currentThread();
+        Map<String, Integer> previous = Collections.emptyMap();
+        long next = System.nanoTime() + periodNS;
+        while (reporter == self) {
+            long remaining = next - System.nanoTime();
+            if (remaining > 0) {
+                LockSupport.parkNanos(remaining);
+                continue;
+            }
+            next += periodNS;
+            Map<String, Integer> current = AbstractCloseable.openCloseablesByClass();
+            String report = report(previous, current, AbstractCloseable.closeableTracingSample());
+            if (report != null)
+                Jvm.perf().on(AbstractCloseable.class, report);
+            previous = current;
+        }
+    }
+
+    /**
+     * @return a line listing the classes with the most open closeables and how many more or fewer there are since the
+     * previous report, or null if none are growing.
+     */
+    @Nullable
+    static String report(@NotNull Map<String, Integer> previous, @NotNull Map<String, Integer> current, int sampleOneIn) {
+        boolean growing = false;
+        StringBuilder sb = new StringBuilder("Open closeables");
+        if (sampleOneIn > 1)
+            sb.append(" (tracing 1 in ").append(sampleOneIn).append(')');
+        sb.append(':');
+        int count = 0;
+        for (Map.Entry<String, Integer> entry : current.entrySet()) {
+            int delta = entry.getValue() - previous.getOrDefault(entry.getKey(), 0);
+            growing |= delta > 0;
+            if (count++ < MAX_CLASSES) {
+                sb.append(' ').append(entry.getKey()).append('=').append(entry.getValue());
+                if (delta != 0)
+                    sb.append(" (").append(delta > 0 ? "+" : "").append(delta).append(')');
+                sb.append(',');
+            }
+        }
+        if (!growing)
+            return null;
+        if (count > MAX_CLASSES)
+            sb.append(" and ").append(count - MAX_CLASSES).append(" more classes");
+        else
+            sb.setLength(sb.length() - 1);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.io;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.Maths;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.util.ConcurrentHistogram;
+import net.openhft.chronicle.core.util.Histogram;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Maps a file as fixed size chunks, extending and mapping the chunks ahead of the one in use on a background thread
+ * so a writer crossing into a new chunk doesn't wait for the file to grow, the mapping or the first touch of each
+ * page.
+ * <p>
+ * {@link #tryAcquire(long)} never blocks, it returns 0 if the chunk isn't ready yet, while {@link #acquire(long)}
+ * waits for it, mapping it on the caller's thread if the background thread hasn't started on it. Either way, the
+ * following <code>aheadChunks</code> chunks are requested. Released chunks are unmapped by the
+ * {@link BackgroundResourceReleaser}.
+ */
+public class MappedChunkService extends AbstractCloseable {
+    private static final long PARK_NS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @NotNull
+    private final RandomAccessFile raf;
+    @NotNull
+    private final FileChannel fileChannel;
+    private final long chunkSize;
+    private final int aheadChunks;
+    private final boolean pretouch;
+    private final ConcurrentMap<Long, Chunk> chunks = new ConcurrentHashMap<>();
+    // the chunks most recently looked up by index modulo its length, so polling a chunk doesn't box its index.
+    private final AtomicReferenceArray<Chunk> recent;
+    private final Queue<Long> requests = new ConcurrentLinkedQueue<>();
+    private final Set<Long> released = ConcurrentHashMap.newKeySet();
+    // the highest chunk requested so far, so the common case doesn't need to queue anything.
+    private final AtomicLong requestedUpTo = new AtomicLong(-1);
+    private final LongAdder mappedAhead = new LongAdder();
+    private final LongAdder stalls = new LongAdder();
+    private final ConcurrentHistogram mapLatency = new ConcurrentHistogram(30, 3, 1000.0, 2);
+    @NotNull
+    private final Thread mapper;
+
+    /**
+     * @param file        to map, created if it doesn't exist
+     * @param chunkSize   the size of each chunk, rounded up to the map alignment
+     * @param aheadChunks how many chunks after the last one acquired to map in the background
+     * @param pretouch    whether to touch every page of a chunk in the background so it is faulted in before use.
+     *                    Chunks the file is extended for are faulted writable, existing ones only readable.
+     * @throws IOException if the file can't be opened
+     */
+    public MappedChunkService(@NotNull File file, long chunkSize, int aheadChunks, boolean pretouch) throws IOException {
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("chunkSize must be positive, was " + chunkSize);
+        if (aheadChunks < 0)
+            throw new IllegalArgumentException("aheadChunks must not be negative, was " + aheadChunks);
+        this.chunkSize = OS.mapAlign(chunkSize);
+        this.aheadChunks = aheadChunks;
+        this.pretouch = pretouch;
+        this.recent = new AtomicReferenceArray<>(Maths.nextPower2(aheadChunks * 2 + 2, 8));
+        this.raf = new RandomAccessFile(file, "rw");
+        this.fileChannel = raf.getChannel();
+        mapper = new Thread(this::runMapper, "mapper~" + file.getName());
+        mapper.setDaemon(true);
+        mapper.start();
+    }
+
+    public long chunkSize() {
+        return chunkSize;
+    }
+
+    public int aheadChunks() {
+        return aheadChunks;
+    }
+
+    /**
+     * Request a chunk and the chunks after it are mapped, without waiting.
+     *
+     * @return the address of the chunk, or 0 if it isn't mapped yet.
+     * @throws IORuntimeException if the background thread failed to map it. The next call will try again.
+     */
+    public long tryAcquire(long chunk) throws IllegalStateException, IORuntimeException {
+        throwExceptionIfClosed();
+        if (!released.isEmpty())
+            released.remove(chunk);
+        requestUpTo(chunk);
+        Chunk c = recent(chunk);
+        if (c == null) {
+            c = chunk(chunk);
+            // only queued once, whether or not requestUpTo queued it, however often this is polled.
+            if (c.address == 0 && c.requested.compareAndSet(false, true))
+                request(chunk);
+        }
+        Throwable error = c.error;
+        if (error != null) {
+            remove(c);
+            throw new IORuntimeException(error);
+        }
+        return c.address;
+    }
+
+    /**
+     * Acquire a chunk, waiting for or mapping it on this thread if the background thread hasn't got to it.
+     *
+     * @return the address of the chunk.
+     * @throws IOException if the chunk couldn't be mapped.
+     */
+    public long acquire(long chunk) throws IllegalStateException, IOException {
+        throwExceptionIfClosed();
+        if (!released.isEmpty())
+            released.remove(chunk);
+        requestUpTo(chunk);
+        Chunk c = recent(chunk);
+        if (c == null)
+            c = chunk(chunk);
+        long address = c.address;
+        if (address != 0)
+            return address;
+        stalls.increment();
+        if (c.claim())
+            map(c);
+        while ((address = c.address) == 0 && c.error == null) {
+            throwExceptionIfClosed();
+            Jvm.nanoPause();
+        }
+        if (c.error != null) {
+            remove(c);
+            throw c.error instanceof IOException ? (IOException) c.error : new IOException(c.error);
+        }
+        return address;
+    }
+
+    /**
+     * Release a chunk no longer needed. It is unmapped in the background.
+     */
+    public void release(long chunk) {
+        // so the background thread doesn't map it again if it is still queued.
+        released.add(chunk);
+        Chunk c = chunks.get(chunk);
+        if (c == null || !remove(c))
+            return;
+        // the address is only set once mapped, so wait for a mapping in progress to finish rather than leak it.
+        while (c.claimed.get() && c.address == 0 && c.error == null)
+            Jvm.nanoPause();
+        // unmap(c) so a close at the same time can't unmap it twice.
+        if (c.address != 0)
+            BackgroundResourceReleaser.run(() -> unmap(c));
+    }
+
+    @Nullable
+    private Chunk recent(long chunk) {
+        Chunk c = recent.get((int) chunk & (recent.length() - 1));
+        return c != null && c.index == chunk && !c.removed ? c : null;
+    }
+
+    @NotNull
+    private Chunk chunk(long chunk) {
+        Chunk c = chunks.computeIfAbsent(chunk, Chunk::new);
+        recent.set((int) chunk & (recent.length() - 1), c);
+        return c;
+    }
+
+    private boolean remove(@NotNull Chunk c) {
+        // marked first so a stale entry in recent is ignored.
+        c.removed = true;
+        recent.compareAndSet((int) c.index & (recent.length() - 1), c, null);
+        return chunks.remove(c.index, c);
+    }
+
+    private void requestUpTo(long chunk) {
+        long upTo = chunk + aheadChunks;
+        long prev;
+        do {
+            prev = requestedUpTo.get();
+            if (upTo <= prev)
+                return;
+        } while (!requestedUpTo.compareAndSet(prev, upTo));
+        for (long i = Math.max(prev + 1, chunk); i <= upTo; i++)
+            requests.add(i);
+        LockSupport.unpark(mapper);
+    }
+
+    private void request(long chunk) {
+        requests.add(chunk);
+        LockSupport.unpark(mapper);
+    }
+
+    private void runMapper() {
+        while (!isClosing()) {
+            Long index = requests.poll();
+            if (index == null) {
+                // released chunks are only requested again explicitly, so with nothing queued they can be forgotten.
+                released.clear();
+                LockSupport.parkNanos(this, PARK_NS);
+                continue;
+            }
+            if (released.contains(index))
+                continue;
+            Chunk c = chunk(index);
+            if (c.claim()) {
+                map(c);
+                mappedAhead.increment();
+                // released while it was being mapped.
+                if (released.contains(index) && remove(c))
+                    unmap(c);
+            }
+        }
+    }
+
+    private void map(@NotNull Chunk c) {
+        long start = System.nanoTime();
+        try {
+            long end = (c.index + 1) * chunkSize;
+            boolean extended = false;
+            synchronized (raf) {
+                if (raf.length() < end) {
+                    raf.setLength(end);
+                    extended = true;
+                }
+            }
+            long address = OS.map(fileChannel, FileChannel.MapMode.READ_WRITE, c.index * chunkSize, chunkSize);
+            // only fault in new chunks writable, as this would make every page of existing data dirty.
+            if (pretouch)
+                OS.prefault(address, chunkSize, extended);
+            mapLatency.sampleNanos(System.nanoTime() - start);
+            c.address = address;
+            if (isClosing())
+                unmap(c);
+
+        } catch (Throwable t) {
+            Jvm.warn().on(getClass(), "Failed to map chunk " + c.index, t);
+            c.error = t;
+        }
+    }
+
+    boolean isMapped(long chunk) {
+        Chunk c = chunks.get(chunk);
+        return c != null && c.address != 0;
+    }
+
+    int pendingRequests() {
+        return requests.size();
+    }
+
+    /**
+     * @return the number of chunks mapped by the background thread.
+     */
+    public long mappedAheadCount() {
+        return mappedAhead.sum();
+    }
+
+    /**
+     * @return the number of times {@link #acquire(long)} found its chunk wasn't ready.
+     */
+    public long stallCount() {
+        return stalls.sum();
+    }
+
+    /**
+     * @return a histogram of the time to extend, map and pretouch each chunk in nano-seconds.
+     */
+    @NotNull
+    public Histogram mapLatency() {
+        return mapLatency.snapshot();
+    }
+
+    @Override
+    protected boolean threadSafetyCheck(boolean isUsed) {
+        // chunks can be acquired and released by any thread.
+        return true;
+    }
+
+    @Override
+    protected void performClose() {
+        LockSupport.unpark(mapper);
+        try {
+            mapper.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Chunk c : chunks.values())
+            unmap(c);
+        chunks.clear();
+        Closeable.closeQuietly(fileChannel, raf);
+    }
+
+    private void unmap(@NotNull Chunk c) {
+        long address = c.address;
+        if (address != 0 && c.unmapped.compareAndSet(false, true))
+            new OS.Unmapper(address, chunkSize).run();
+    }
+
+    static final class Chunk {
+        final long index;
+        final AtomicBoolean claimed = new AtomicBoolean();
+        final AtomicBoolean unmapped = new AtomicBoolean();
+        final AtomicBoolean requested = new AtomicBoolean();
+        volatile long address;
+        volatile boolean removed;
+        @Nullable
+        volatile Throwable error;
+
+        Chunk(long index) {
+            this.index = index;
+        }
+
+        boolean claim() {
+            return !claimed.get() && claimed.compareAndSet(false, true);
+        }
+    }
+}
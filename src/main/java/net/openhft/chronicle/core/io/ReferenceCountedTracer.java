@@ -7,7 +7,16 @@ import org.jetbrains.annotations.NotNull;
 public interface ReferenceCountedTracer extends ReferenceCounted {
     @NotNull
     static ReferenceCountedTracer onReleased(final Runnable onRelease, String uniqueId) {
-        return Jvm.isResourceTracing()
+        return onReleased(onRelease, uniqueId, true);
+    }
+
+    /**
+     * @param traced false to skip tracing where the resource was reserved and released even if
+     *               {@link Jvm#isResourceTracing()}, e.g. when it wasn't sampled for closeable tracing
+     */
+    @NotNull
+    static ReferenceCountedTracer onReleased(final Runnable onRelease, String uniqueId, boolean traced) {
+        return traced && Jvm.isResourceTracing()
                 ? new DualReferenceCounted(
                 new TracingReferenceCounted(onRelease, uniqueId),
                 new VanillaReferenceCounted(() -> {
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.io;
+
+import net.openhft.chronicle.core.time.LongTime;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import sun.misc.Unsafe;
+
+import static net.openhft.chronicle.core.UnsafeMemory.UNSAFE;
+
+/**
+ * Fast, unsafe ways to render and parse ISO-8601 timestamps in UTC, e.g. <code>2020-09-28T12:34:56.123456789</code>,
+ * without creating garbage.
+ * <p>
+ * The unit of a time is detected with {@link LongTime}, and the fraction has as many digits as the unit, i.e. none
+ * for seconds, 3 for millis, 6 for micros and 9 for nanos. The date prefix is cached for the last day used, so a
+ * new prefix is only created once per day.
+ * NOTE: The caller has to ensure there is always plenty of memory to perform this operation.
+ */
+public enum UnsafeTimestamp {
+    ;
+
+    /**
+     * The length of the longest timestamp, with nano-seconds
+     */
+    public static final int MAX_LENGTH = 29;
+    static final int PREFIX_LENGTH = 11;
+    private static final long BYTE_ARRAY_BASE = Unsafe.ARRAY_BYTE_BASE_OFFSET;
+    private static final long SECS_PER_DAY = 86400;
+
+    @Nullable
+    private static volatile DayPrefix lastDay;
+
+    /**
+     * @return the address after the timestamp
+     */
+    public static long appendTimestamp(long address, long time) {
+        return address + append(null, address, time);
+    }
+
+    /**
+     * @return the offset after the timestamp
+     */
+    public static int appendTimestamp(@NotNull byte[] bytes, int offset, long time) {
+        if (offset < 0 || offset + length(time) > bytes.length)
+            throw new ArrayIndexOutOfBoundsException("Not enough space for a timestamp at " + offset + " in " + bytes.length);
+        return offset + append(bytes, BYTE_ARRAY_BASE + offset, time);
+    }
+
+    /**
+     * @return the length of the timestamp for this time
+     */
+    public static int length(long time) {
+        int digits = fractionDigits(time);
+        return digits == 0 ? 19 : 20 + digits;
+    }
+
+    /**
+     * Parse a timestamp with 0 to 9 fraction digits and an optional trailing 'Z'
+     *
+     * @return the time in epoch nano-seconds
+     * @throws IllegalArgumentException if it is not a timestamp
+     */
+    public static long parseTimestamp(long address, int length) throws IllegalArgumentException {
+        return parse(null, address, length);
+    }
+
+    /**
+     * Parse a timestamp with 0 to 9 fraction digits and an optional trailing 'Z'
+     *
+     * @return the time in epoch nano-seconds
+     * @throws IllegalArgumentException if it is not a timestamp
+     */
+    public static long parseTimestamp(@NotNull byte[] bytes, int offset, int length) throws IllegalArgumentException {
+        if (offset < 0 || offset + length > bytes.length)
+            throw new ArrayIndexOutOfBoundsException("Invalid offset or length, array's length is " + bytes.length);
+        return parse(bytes, BYTE_ARRAY_BASE + offset, length);
+    }
+
+    static int fractionDigits(long time) {
+        if (LongTime.isNanos(time))
+            return 9;
+        if (LongTime.isMicros(time))
+            return 6;
+        if (LongTime.isMillis(time))
+            return 3;
+        return 0;
+    }
+
+    private static int append(@Nullable Object base, long offset, long time) {
+        if (time < 0)
+            throw new IllegalArgumentException("Negative time " + time);
+        int digits = fractionDigits(time);
+        long unitsPerSec = digits == 9 ? 1_000_000_000L : digits == 6 ? 1_000_000L : digits == 3 ? 1_000L : 1L;
+        long secs = time / unitsPerSec;
+        long fraction = time % unitsPerSec;
+        long day = secs / SECS_PER_DAY;
+        int secOfDay = (int) (secs % SECS_PER_DAY);
+
+        DayPrefix prefix = lastDay;
+        if (prefix == null || prefix.day != day)
+            lastDay = prefix = new DayPrefix(day);
+        UNSAFE.copyMemory(prefix.bytes, BYTE_ARRAY_BASE, base, offset, PREFIX_LENGTH);
+
+        int hours = secOfDay / 3600;
+        int mins = secOfDay / 60 % 60;
+        int sec = secOfDay % 60;
+        put2(base, offset + 11, hours);
+        UNSAFE.putByte(base, offset + 13, (byte) ':');
+        put2(base, offset + 14, mins);
+        UNSAFE.putByte(base, offset + 16, (byte) ':');
+        put2(base, offset + 17, sec);
+        if (digits == 0)
+            return 19;
+        UNSAFE.putByte(base, offset + 19, (byte) '.');
+        for (int i = 19 + digits; i > 19; i--) {
+            UNSAFE.putByte(base, offset + i, (byte) ('0' + fraction % 10));
+            fraction /= 10;
+        }
+        return 20 + digits;
+    }
+
+    private static void put2(@Nullable Object base, long offset, int num) {
+        UNSAFE.putByte(base, offset, (byte) ('0' + num / 10));
+        UNSAFE.putByte(base, offset + 1, (byte) ('0' + num % 10));
+    }
+
+    private static long parse(@Nullable Object base, long offset, int length) {
+        if (length < 19 || length > MAX_LENGTH + 1)
+            throw invalid(base, offset, length);
+        DayPrefix prefix = lastDay;
+        long day;
+        if (prefix != null && prefix.matches(base, offset)) {
+            day = prefix.day;
+        } else {
+            if (UNSAFE.getByte(base, offset + 4) != '-'
+                    || UNSAFE.getByte(base, offset + 7) != '-'
+                    || (UNSAFE.getByte(base, offset + 10) | 0x20) != 't')
+                throw invalid(base, offset, length);
+            int year = digits(base, offset, 4, length);
+            int month = digits(base, offset + 5, 2, length);
+            int dayOfMonth = digits(base, offset + 8, 2, length);
+            if (month < 1 || month > 12 || dayOfMonth < 1 || dayOfMonth > 31)
+                throw invalid(base, offset, length);
+            day = daysFromCivil(year, month, dayOfMonth);
+        }
+        if (UNSAFE.getByte(base, offset + 13) != ':' || UNSAFE.getByte(base, offset + 16) != ':')
+            throw invalid(base, offset, length);
+        int hours = digits(base, offset + 11, 2, length);
+        int mins = digits(base, offset + 14, 2, length);
+        int secs = digits(base, offset + 17, 2, length);
+        if (hours > 23 || mins > 59 || secs > 60)
+            throw invalid(base, offset, length);
+
+        if (UNSAFE.getByte(base, offset + length - 1) == 'Z')
+            length--;
+        long nanos = 0;
+        if (length > 19) {
+            int digits = length - 20;
+            if (UNSAFE.getByte(base, offset + 19) != '.' || digits < 1 || digits > 9)
+                throw invalid(base, offset, length);
+            for (int i = 0; i < 9; i++)
+                nanos = nanos * 10 + (i < digits ? digit(base, offset + 20 + i, length) : 0);
+        }
+        return ((day * SECS_PER_DAY + hours * 3600 + mins * 60 + secs) * 1_000_000_000L) + nanos;
+    }
+
+    private static int digits(@Nullable Object base, long offset, int count, int length) {
+        int num = 0;
+        for (int i = 0; i < count; i++)
+            num = num * 10 + digit(base, offset + i, length);
+        return num;
+    }
+
+    private static int digit(@Nullable Object base, long offset, int length) {
+        int d = UNSAFE.getByte(base, offset) - '0';
+        if (d < 0 || d > 9)
+            throw new IllegalArgumentException("Expected a digit in a timestamp of length " + length);
+        return d;
+    }
+
+    @NotNull
+    private static IllegalArgumentException invalid(@Nullable Object base, long offset, int length) {
+        StringBuilder sb = new StringBuilder("Invalid timestamp: ");
+        for (int i = 0; i < Math.min(length, MAX_LENGTH + 1); i++)
+            sb.append((char) UNSAFE.getByte(base, offset + i));
+        return new IllegalArgumentException(sb.toString());
+    }
+
+    // from http://howardhinnant.github.io/date_algorithms.html
+    static long daysFromCivil(int year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+        int era = year / 400;
+        int yoe = year - era * 400;
+        int doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097L + doe - 719468;
+    }
+
+    static final class DayPrefix {
+        final long day;
+        final byte[] bytes = new byte[PREFIX_LENGTH];
+
+        DayPrefix(long day) {
+            this.day = day;
+            long z = day + 719468;
+            long era = z / 146097;
+            long doe = z - era * 146097;
+            long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+            long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+            long mp = (5 * doy + 2) / 153;
+            int dayOfMonth = (int) (doy - (153 * mp + 2) / 5 + 1);
+            int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+            int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+            bytes[0] = (byte) ('0' + year / 1000);
+            bytes[1] = (byte) ('0' + year / 100 % 10);
+            bytes[2] = (byte) ('0' + year / 10 % 10);
+            bytes[3] = (byte) ('0' + year % 10);
+            bytes[4] = '-';
+            bytes[5] = (byte) ('0' + month / 10);
+            bytes[6] = (byte) ('0' + month % 10);
+            bytes[7] = '-';
+            bytes[8] = (byte) ('0' + dayOfMonth / 10);
+            bytes[9] = (byte) ('0' + dayOfMonth % 10);
+            bytes[10] = 'T';
+        }
+
+        boolean matches(@Nullable Object base, long offset) {
+            for (int i = 0; i < PREFIX_LENGTH; i++)
+                if (UNSAFE.getByte(base, offset + i) != bytes[i])
+                    return false;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.pool;
+
+import net.openhft.chronicle.core.Maths;
+import net.openhft.chronicle.core.util.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import sun.misc.Unsafe;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+
+import static net.openhft.chronicle.core.UnsafeMemory.UNSAFE;
+
+/**
+ * A {@link StringInterner} for use by many threads at once.
+ * <p>
+ * It uses the same two slot probing, however new Strings are published with ordered writes and the slot to
+ * evict is chosen from the hash rather than a shared toggle, so threads interning different Strings don't keep
+ * evicting each other's entries. There is no locking.
+ * <p>
+ * Hits, misses and evictions are counted with {@link LongAdder}s so they don't add contention.
+ */
+public class ConcurrentStringInterner extends StringInterner {
+    private static final long ARRAY_BASE = Unsafe.ARRAY_OBJECT_BASE_OFFSET;
+    private static final int ARRAY_SHIFT = Integer.numberOfTrailingZeros(Unsafe.ARRAY_OBJECT_INDEX_SCALE);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ConcurrentStringInterner(int capacity) throws IllegalArgumentException {
+        super(capacity);
+    }
+
+    @Nullable
+    @Override
+    public String intern(@Nullable CharSequence cs) {
+        if (cs == null)
+            return null;
+        if (cs.length() > interner.length)
+            return cs.toString();
+        int hash = Maths.hash32(cs);
+        int h = hash & mask;
+        String s = interner[h];
+        if (StringUtils.isEqual(cs, s)) {
+            hits.increment();
+            return s;
+        }
+        int h2 = (hash >> shift) & mask;
+        String s2 = interner[h2];
+        if (StringUtils.isEqual(cs, s2)) {
+            hits.increment();
+            return s2;
+        }
+        return store(hash, h, s, h2, s2, cs.toString());
+    }
+
+    @NotNull
+    @Override
+    public String intern(@NotNull byte[] bytes, int offset, int length) {
+        if (length > interner.length)
+            return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+        int hash = Maths.hashBytes32(bytes, offset, length);
+        int h = hash & mask;
+        String s = interner[h];
+        if (StringUtils.isEqual(s, bytes, offset, length)) {
+            hits.increment();
+            return s;
+        }
+        int h2 = (hash >> shift) & mask;
+        String s2 = interner[h2];
+        if (StringUtils.isEqual(s2, bytes, offset, length)) {
+            hits.increment();
+            return s2;
+        }
+        return store(hash, h, s, h2, s2, new String(bytes, offset, length, StandardCharsets.ISO_8859_1));
+    }
+
+    @NotNull
+    @Override
+    public String intern(long address, int length) {
+        if (length > interner.length)
+            return toString(address, length);
+        int hash = Maths.hashBytes32(address, length);
+        int h = hash & mask;
+        String s = interner[h];
+        if (StringUtils.isEqual(s, address, length)) {
+            hits.increment();
+            return s;
+        }
+        int h2 = (hash >> shift) & mask;
+        String s2 = interner[h2];
+        if (StringUtils.isEqual(s2, address, length)) {
+            hits.increment();
+            return s2;
+        }
+        return store(hash, h, s, h2, s2, toString(address, length));
+    }
+
+    @NotNull
+    private String store(int hash, int h, @Nullable String s, int h2, @Nullable String s2, @NotNull String s3) {
+        misses.increment();
+        int victim;
+        if (s == null) {
+            victim = h;
+        } else if (s2 == null) {
+            victim = h2;
+        } else {
+            victim = (hash & (1 << 30)) == 0 ? h : h2;
+            evictions.increment();
+        }
+        UNSAFE.putOrderedObject(interner, ARRAY_BASE + ((long) victim << ARRAY_SHIFT), s3);
+        return s3;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the fraction of calls which returned a cached String, or NaN if there were none.
+     */
+    public double hitRate() {
+        long hits = hits();
+        return (double) hits / (hits + misses());
+    }
+
+    public void resetStats() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+}
@@ -23,22 +23,77 @@ import net.openhft.chronicle.core.util.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
+/**
+ * A small cache of values parsed from text, so text which is seen repeatedly is only parsed once.
+ * <p>
+ * Each entry can be in one of two slots. When both are taken, an entry which hasn't been hit since it was last
+ * considered for eviction is replaced first, so frequently used values get a second chance.
+ * <p>
+ * Hits are only recorded when a <code>maxCapacity</code> is given, otherwise a hit doesn't write anything and
+ * entries are replaced alternately. With a <code>maxCapacity</code> larger than the capacity, the table doubles in
+ * size when it is evicting more than an eighth of its lookups, until the working set fits or the maximum is reached.
+ * <p>
+ * This class is not thread safe, however a lookup only reads the table once, so a concurrent reader can't see a
+ * mask which doesn't match the array while it grows.
+ */
 public class ParsingCache<E> {
-    protected final ParsedData<E>[] interner;
-    protected final int mask, shift;
+    private static final int MISS_RATE_SHIFT = 3;
+
+    /**
+     * @deprecated the same array as the current table, replaced when the table grows. Lookups don't read it.
+     */
+    @Deprecated(/* remove in x.23 */)
+    protected ParsedData<E>[] interner;
+    /**
+     * @deprecated the masks for {@link #interner}, replaced when the table grows. Lookups don't read them.
+     */
+    @Deprecated(/* remove in x.23 */)
+    protected int mask, shift;
+    private Table<E> table;
     private final Function<String, E> eFunction;
+    private final int maxCapacity;
+    private final boolean adaptive;
     protected boolean toggle = false;
+    private long hits, misses, evictions;
+    private int windowLookups, windowEvictions;
 
+    /**
+     * A fixed capacity cache which doesn't record hits.
+     */
     public ParsingCache(int capacity, Function<String, E> eFunction) throws IllegalArgumentException {
+        this(capacity, capacity, false, eFunction);
+    }
+
+    /**
+     * A cache which records hits for second chance eviction and the stats.
+     *
+     * @param capacity    the initial number of slots
+     * @param maxCapacity the number of slots the table can grow to when there are too many evictions
+     */
+    public ParsingCache(int capacity, int maxCapacity, Function<String, E> eFunction) throws IllegalArgumentException {
+        this(capacity, maxCapacity, true, eFunction);
+    }
+
+    private ParsingCache(int capacity, int maxCapacity, boolean adaptive, Function<String, E> eFunction) {
         this.eFunction = eFunction;
         int n = Maths.nextPower2(capacity, 128);
-        shift = Maths.intLog2(n);
-        interner = new ParsedData[n];
-        mask = n - 1;
+        this.maxCapacity = Math.max(n, Maths.nextPower2(maxCapacity, 128));
+        this.adaptive = adaptive;
+        setTable(new Table<>(n));
+    }
+
+    // keep the deprecated fields in sync for subclasses.
+    @SuppressWarnings("deprecation")
+    private void setTable(@NotNull Table<E> t) {
+        interner = t.interner;
+        mask = t.mask;
+        shift = t.shift;
+        table = t;
     }
 
     @Nullable
@@ -46,36 +101,170 @@ public class ParsingCache<E> {
         if (cs == null)
             return null;
         int hash = Maths.hash32(cs);
-        int h = hash & mask;
-        ParsedData<E> s = interner[h];
+        Table<E> t = table;
+        int h = hash & t.mask;
+        ParsedData<E> s = t.interner[h];
         if (s != null && StringUtils.isEqual(s.string, cs))
-            return s.e;
-        int h2 = (hash >> shift) & mask;
-        ParsedData<E> s2 = interner[h2];
+            return hit(s);
+        int h2 = (hash >> t.shift) & t.mask;
+        ParsedData<E> s2 = t.interner[h2];
         if (s2 != null && StringUtils.isEqual(s2.string, cs))
-            return s2.e;
-        @NotNull String string = cs.toString();
-        @NotNull ParsedData<E> s3 = new ParsedData<>(string, eFunction.apply(string));
-        interner[s == null || (s2 != null && toggle()) ? h : h2] = s3;
+            return hit(s2);
+        return store(t, h, s, h2, s2, cs.toString());
+    }
 
+    /**
+     * Look up ISO-8859-1 text from a byte[] without decoding it unless it is a miss.
+     */
+    public E intern(@NotNull byte[] bytes, int offset, int length) {
+        int hash = Maths.hashBytes32(bytes, offset, length);
+        Table<E> t = table;
+        int h = hash & t.mask;
+        ParsedData<E> s = t.interner[h];
+        if (s != null && StringUtils.isEqual(s.string, bytes, offset, length))
+            return hit(s);
+        int h2 = (hash >> t.shift) & t.mask;
+        ParsedData<E> s2 = t.interner[h2];
+        if (s2 != null && StringUtils.isEqual(s2.string, bytes, offset, length))
+            return hit(s2);
+        return store(t, h, s, h2, s2, new String(bytes, offset, length, StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Look up ISO-8859-1 text in native memory without decoding it unless it is a miss.
+     */
+    public E intern(long address, int length) {
+        int hash = Maths.hashBytes32(address, length);
+        Table<E> t = table;
+        int h = hash & t.mask;
+        ParsedData<E> s = t.interner[h];
+        if (s != null && StringUtils.isEqual(s.string, address, length))
+            return hit(s);
+        int h2 = (hash >> t.shift) & t.mask;
+        ParsedData<E> s2 = t.interner[h2];
+        if (s2 != null && StringUtils.isEqual(s2.string, address, length))
+            return hit(s2);
+        return store(t, h, s, h2, s2, StringInterner.toString(address, length));
+    }
+
+    private E hit(@NotNull ParsedData<E> pd) {
+        if (adaptive) {
+            hits++;
+            windowLookups++;
+            pd.referenced = true;
+        }
+        return pd.e;
+    }
+
+    private E store(@NotNull Table<E> t, int h, @Nullable ParsedData<E> s, int h2, @Nullable ParsedData<E> s2, @NotNull String string) {
+        misses++;
+        windowLookups++;
+        @NotNull ParsedData<E> s3 = new ParsedData<>(string, eFunction.apply(string));
+        if (s == null) {
+            t.interner[h] = s3;
+        } else if (s2 == null) {
+            t.interner[h2] = s3;
+        } else {
+            t.interner[victim(s, s2) ? h : h2] = s3;
+            evictions++;
+            windowEvictions++;
+        }
+        if (windowLookups > t.interner.length)
+            endWindow();
         return s3.e;
     }
 
+    // second chance: evict the entry which hasn't been hit, and clear the bit of the one kept so it must be hit again.
+    private boolean victim(@NotNull ParsedData<E> s, @NotNull ParsedData<E> s2) {
+        if (s.referenced) {
+            s.referenced = false;
+            if (!s2.referenced)
+                return false;
+            s2.referenced = false;
+        } else if (s2.referenced) {
+            s2.referenced = false;
+            return true;
+        }
+        return toggle();
+    }
+
+    private void endWindow() {
+        if (windowEvictions > windowLookups >> MISS_RATE_SHIFT && table.interner.length < maxCapacity)
+            grow();
+        windowLookups = windowEvictions = 0;
+    }
+
+    private void grow() {
+        Table<E> old = table;
+        Table<E> t = new Table<>(old.interner.length * 2);
+        for (ParsedData<E> pd : old.interner) {
+            if (pd == null)
+                continue;
+            int hash = Maths.hash32(pd.string);
+            int h = hash & t.mask;
+            if (t.interner[h] == null) {
+                t.interner[h] = pd;
+            } else {
+                int h2 = (hash >> t.shift) & t.mask;
+                if (t.interner[h2] == null)
+                    t.interner[h2] = pd;
+            }
+        }
+        setTable(t);
+    }
+
     protected boolean toggle() {
         return toggle = !toggle;
     }
 
     public int valueCount() {
-        return (int) Stream.of(interner).filter(Objects::nonNull).count();
+        return (int) Stream.of(table.interner).filter(Objects::nonNull).count();
+    }
+
+    public int capacity() {
+        return table.interner.length;
+    }
+
+    /**
+     * @return the number of hits, only recorded when constructed with a maxCapacity.
+     */
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    public long evictions() {
+        return evictions;
+    }
+
+    public void resetStats() {
+        hits = misses = evictions = 0;
     }
 
     static class ParsedData<E> {
         final String string;
         final E e;
+        boolean referenced;
 
         ParsedData(String string, E e) {
             this.string = string;
             this.e = e;
         }
     }
+
+    // the array and the masks for it are replaced together when the table grows.
+    static final class Table<E> {
+        final ParsedData<E>[] interner;
+        final int mask, shift;
+
+        @SuppressWarnings("unchecked")
+        Table(int n) {
+            interner = new ParsedData[n];
+            mask = n - 1;
+            shift = Maths.intLog2(n);
+        }
+    }
 }
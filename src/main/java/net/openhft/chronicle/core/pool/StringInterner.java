@@ -22,10 +22,14 @@ import net.openhft.chronicle.core.Maths;
 import net.openhft.chronicle.core.util.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import sun.misc.Unsafe;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 import java.util.stream.Stream;
 
+import static net.openhft.chronicle.core.UnsafeMemory.UNSAFE;
+
 /**
  * <p>
  * StringInterner only guarantees it will behave in a correct manner. When you ask it for a String for a given input, it must return a String which matches the toString() of that CharSequence.
@@ -73,6 +77,59 @@ public class StringInterner {
         return s3;
     }
 
+    /**
+     * Intern ISO-8859-1 text from a byte[], so a hit doesn't need to decode it. For UTF-8 this is only correct for
+     * ASCII text.
+     */
+    @NotNull
+    public String intern(@NotNull byte[] bytes, int offset, int length) {
+        if (length > interner.length)
+            return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+        int hash = Maths.hashBytes32(bytes, offset, length);
+        int h = hash & mask;
+        String s = interner[h];
+        if (StringUtils.isEqual(s, bytes, offset, length))
+            return s;
+        int h2 = (hash >> shift) & mask;
+        String s2 = interner[h2];
+        if (StringUtils.isEqual(s2, bytes, offset, length))
+            return s2;
+        @NotNull String s3 = new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+        interner[s == null || (s2 != null && toggle()) ? h : h2] = s3;
+
+        return s3;
+    }
+
+    /**
+     * Intern ISO-8859-1 text in native memory, so a hit doesn't need to decode it. For UTF-8 this is only correct
+     * for ASCII text.
+     */
+    @NotNull
+    public String intern(long address, int length) {
+        if (length > interner.length)
+            return toString(address, length);
+        int hash = Maths.hashBytes32(address, length);
+        int h = hash & mask;
+        String s = interner[h];
+        if (StringUtils.isEqual(s, address, length))
+            return s;
+        int h2 = (hash >> shift) & mask;
+        String s2 = interner[h2];
+        if (StringUtils.isEqual(s2, address, length))
+            return s2;
+        @NotNull String s3 = toString(address, length);
+        interner[s == null || (s2 != null && toggle()) ? h : h2] = s3;
+
+        return s3;
+    }
+
+    @NotNull
+    static String toString(long address, int length) {
+        byte[] bytes = new byte[length];
+        UNSAFE.copyMemory(null, address, bytes, Unsafe.ARRAY_BYTE_BASE_OFFSET, length);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
     protected boolean toggle() {
         return toggle = !toggle;
     }
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+import net.openhft.chronicle.core.Jvm;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records the time spent in each state for a {@link Pauser}. The stats are only written by the pausing thread, and
+ * are plain fields so reading them from another thread may see stale values.
+ * <p>
+ * Spinning only reads the clock every {@value #SPINS_PER_SAMPLE} spins, and when it stops spinning to yield, park or
+ * reset.
+ * <p>
+ * {@link #unpause()} always unparks the thread which pauses, so an unpause just before it parks leaves a permit and
+ * the park returns at once rather than the wake up being lost.
+ */
+public abstract class AbstractPauser implements Pauser {
+    static final int SPINS_PER_SAMPLE = 16;
+
+    @Nullable
+    private volatile Thread owner;
+    // an unpause before the owner was known.
+    private volatile boolean unparkPending;
+    private long spinningNS, yieldingNS, parkedNS, countPaused;
+    // 0 when not spinning.
+    private long spinStart;
+    private int spins;
+
+    protected void spin() {
+        if (spinStart == 0)
+            spinStart = System.nanoTime();
+        Jvm.nanoPause();
+        countPaused++;
+        if (++spins >= SPINS_PER_SAMPLE) {
+            long now = System.nanoTime();
+            spinningNS += now - spinStart;
+            spinStart = now;
+            spins = 0;
+        }
+    }
+
+    private void stopSpinning() {
+        if (spinStart == 0)
+            return;
+        spinningNS += System.nanoTime() - spinStart;
+        spinStart = 0;
+        spins = 0;
+    }
+
+    protected void yieldOnce() {
+        stopSpinning();
+        long start = System.nanoTime();
+        Thread.yield();
+        yieldingNS += System.nanoTime() - start;
+        countPaused++;
+    }
+
+    protected void park(long nanos) {
+        stopSpinning();
+        long start = System.nanoTime();
+        if (isUnparkPending())
+            LockSupport.unpark(owner);
+        LockSupport.parkNanos(nanos);
+        parkedNS += System.nanoTime() - start;
+        countPaused++;
+    }
+
+    /**
+     * Subclasses must call this so the time spinning before work was found is recorded.
+     */
+    @Override
+    public void reset() {
+        stopSpinning();
+    }
+
+    // record the pausing thread, and whether it was unpaused before it was known.
+    private boolean isUnparkPending() {
+        Thread thread = Thread.currentThread();
+        if (owner == thread)
+            return false;
+        owner = thread;
+        if (!unparkPending)
+            return false;
+        unparkPending = false;
+        return true;
+    }
+
+    @Override
+    public void unpause() {
+        Thread thread = owner;
+        if (thread == null) {
+            unparkPending = true;
+            // the owner may have been set before it could see unparkPending.
+            thread = owner;
+            if (thread == null)
+                return;
+        }
+        LockSupport.unpark(thread);
+    }
+
+    @Override
+    public long spinningNanos() {
+        return spinningNS;
+    }
+
+    @Override
+    public long yieldingNanos() {
+        return yieldingNS;
+    }
+
+    @Override
+    public long parkedNanos() {
+        return parkedNS;
+    }
+
+    @Override
+    public long countPaused() {
+        return countPaused;
+    }
+
+    @Override
+    public void resetStats() {
+        spinningNS = yieldingNS = parkedNS = countPaused = 0;
+        spinStart = 0;
+        spins = 0;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+/**
+ * Spins for a number of pauses, then yields for a number of pauses, then parks, doubling the time parked from
+ * <code>minParkNS</code> up to <code>maxParkNS</code>.
+ */
+public class AdaptivePauser extends AbstractPauser {
+    private final long spins;
+    private final long yields;
+    private final long minParkNS;
+    private final long maxParkNS;
+    private long count;
+    private long parkNS;
+
+    public AdaptivePauser(long spins, long yields, long minParkNS, long maxParkNS) {
+        if (minParkNS > maxParkNS)
+            throw new IllegalArgumentException("minParkNS " + minParkNS + " > maxParkNS " + maxParkNS);
+        this.spins = spins;
+        this.yields = yields;
+        this.minParkNS = minParkNS;
+        this.maxParkNS = maxParkNS;
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        count = 0;
+        parkNS = minParkNS;
+    }
+
+    @Override
+    public void pause() {
+        long count = this.count++;
+        if (count < spins) {
+            spin();
+        } else if (count - spins < yields) {
+            yieldOnce();
+        } else {
+            park(parkNS);
+            parkNS = Math.min(maxParkNS, parkNS * 2);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptivePauser{spins=" + spins + ", yields=" + yields + ", minParkNS=" + minParkNS + ", maxParkNS=" + maxParkNS + '}';
+    }
+}
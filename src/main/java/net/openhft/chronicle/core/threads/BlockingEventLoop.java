@@ -0,0 +1,276 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.io.AbstractCloseable;
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.io.ClosedIllegalStateException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * An EventLoop which runs each handler in its own thread, for handlers which block such as
+ * {@link HandlerPriority#BLOCKING} or {@link HandlerPriority#DAEMON} handlers.
+ * <p>
+ * On Java 21+ each handler runs on a virtual thread, so hundreds of handlers blocking on files or sockets don't need
+ * an OS thread each. On older versions, or with <code>-DblockingEventLoop.virtual=false</code>, each handler runs on
+ * its own platform thread, and adding more than <code>maxThreads</code> handlers at once throws an
+ * IllegalStateException, as a handler only gives its thread back when it finishes.
+ * <p>
+ * Each handler has <code>loopStarted()</code> called on its thread, then <code>action()</code> until it throws
+ * {@link InvalidEventHandlerException} or the loop is stopped, then <code>loopFinished()</code>, and is closed if it
+ * is Closeable. When action() returns false, the handler's thread pauses with a {@link Pauser}, by default parking
+ * for 1 us up to 1 ms, and {@link #unpause()} wakes all the handlers which are paused.
+ */
+public class BlockingEventLoop extends AbstractCloseable implements EventLoop {
+    @NotNull
+    private final String name;
+    @NotNull
+    private final ExecutorService service;
+    private final boolean virtual;
+    private final int maxThreads;
+    // handlers added and not finished, only counted for platform threads.
+    private final AtomicInteger handlerCount = new AtomicInteger();
+    @NotNull
+    private final Supplier<Pauser> pauserSupplier;
+    private final Set<Pauser> pausers = ConcurrentHashMap.newKeySet();
+    private final List<EventHandler> pending = new ArrayList<>();
+    private volatile boolean started;
+    private volatile boolean stopped;
+
+    public BlockingEventLoop(@NotNull String name) {
+        this(name, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * @param maxThreads the maximum number of handlers when virtual threads are not available.
+     */
+    public BlockingEventLoop(@NotNull String name, int maxThreads) {
+        this(name, maxThreads, () -> new AdaptivePauser(0, 0, 1_000, TimeUnit.MILLISECONDS.toNanos(1)));
+    }
+
+    /**
+     * @param maxThreads     the maximum number of handlers when virtual threads are not available.
+     * @param pauserSupplier creates a Pauser for each handler for when its action() returns false.
+     */
+    public BlockingEventLoop(@NotNull String name, int maxThreads, @NotNull Supplier<Pauser> pauserSupplier) {
+        this.name = name;
+        this.pauserSupplier = pauserSupplier;
+        this.maxThreads = maxThreads;
+        ExecutorService virtualService = Jvm.getBoolean("blockingEventLoop.virtual", true) ? virtualThreadExecutor(name) : null;
+        virtual = virtualService != null;
+        service = virtual ? virtualService : Executors.newFixedThreadPool(maxThreads, daemonThreadFactory(name));
+    }
+
+    /**
+     * Create an executor with a virtual thread per task, using reflection as this compiles for Java 8.
+     *
+     * @return the executor or null if virtual threads are not available
+     */
+    @Nullable
+    static ExecutorService virtualThreadExecutor(@NotNull String name) {
+        if (Jvm.majorVersion() < 21)
+            return null;
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory);
+        } catch (Exception e) {
+            Jvm.warn().on(BlockingEventLoop.class, "Unable to use virtual threads, falling back to a thread pool", e);
+            return null;
+        }
+    }
+
+    @NotNull
+    static ThreadFactory daemonThreadFactory(@NotNull String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + count.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * @return true if handlers run on virtual threads
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public void addHandler(@NotNull EventHandler handler) throws IllegalStateException {
+        throwExceptionIfStopped();
+        if (DEBUG_ADDING_HANDLERS)
+            System.out.println("Adding " + handler.priority() + " " + handler + " to " + name);
+        if (!virtual && handlerCount.incrementAndGet() > maxThreads) {
+            handlerCount.decrementAndGet();
+            throw new IllegalStateException("Cannot add " + handler + " to " + name + " as it already has maxThreads: " + maxThreads + " handlers");
+        }
+        handler.eventLoop(this);
+        synchronized (pending) {
+            if (!started) {
+                pending.add(handler);
+                return;
+            }
+        }
+        submit(handler);
+    }
+
+    private void throwExceptionIfStopped() throws IllegalStateException {
+        throwExceptionIfClosed();
+        if (stopped || isClosing())
+            throw new ClosedIllegalStateException(name + " is stopped");
+    }
+
+    private void submit(@NotNull EventHandler handler) throws IllegalStateException {
+        try {
+            service.submit(() -> runHandler(handler));
+        } catch (RejectedExecutionException e) {
+            // stopped concurrently
+            handlerFinished();
+            throw new ClosedIllegalStateException(name + " is stopped", e);
+        }
+    }
+
+    private void handlerFinished() {
+        if (!virtual)
+            handlerCount.decrementAndGet();
+    }
+
+    @Override
+    public void start() throws IllegalStateException {
+        throwExceptionIfStopped();
+        List<EventHandler> handlers;
+        synchronized (pending) {
+            if (started)
+                return;
+            started = true;
+            handlers = new ArrayList<>(pending);
+            pending.clear();
+        }
+        for (EventHandler handler : handlers)
+            submit(handler);
+    }
+
+    void runHandler(@NotNull EventHandler handler) {
+        Pauser pauser = pauserSupplier.get();
+        pausers.add(pauser);
+        try {
+            handler.loopStarted();
+            while (!stopped) {
+                if (handler.action())
+                    pauser.reset();
+                else
+                    pauser.pause();
+            }
+        } catch (InvalidEventHandlerException e) {
+            // expected to remove the handler
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+            if (!stopped)
+                Jvm.warn().on(getClass(), "Handler " + handler + " threw", t);
+        } finally {
+            pausers.remove(pauser);
+            finish(handler);
+            handlerFinished();
+        }
+    }
+
+    private void finish(@NotNull EventHandler handler) {
+        try {
+            handler.loopFinished();
+        } catch (Throwable t) {
+            Jvm.debug().on(getClass(), t);
+        }
+        if (handler instanceof Closeable)
+            Closeable.closeQuietly(handler);
+    }
+
+    @Override
+    public void unpause() {
+        for (Pauser pauser : pausers)
+            pauser.unpause();
+    }
+
+    /**
+     * Stop calling handlers, and interrupt any which are blocked.
+     */
+    @Override
+    public void stop() {
+        stopped = true;
+        unpause();
+        service.shutdownNow();
+    }
+
+    @Override
+    public boolean isAlive() {
+        return started && !service.isTerminated();
+    }
+
+    @Override
+    public void awaitTermination() {
+        try {
+            while (!service.awaitTermination(1, TimeUnit.SECONDS))
+                Jvm.debug().on(getClass(), "Waiting for handlers to finish in " + name);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    protected void performClose() {
+        stop();
+        awaitTermination();
+        List<EventHandler> handlers;
+        synchronized (pending) {
+            handlers = new ArrayList<>(pending);
+            pending.clear();
+        }
+        handlers.forEach(this::finish);
+    }
+
+    @Override
+    public String toString() {
+        return "BlockingEventLoop{name='" + name + "', virtual=" + virtual + '}';
+    }
+}
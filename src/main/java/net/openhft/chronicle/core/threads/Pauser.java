@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A strategy for what a thread does when it has nothing to do, trading CPU for how quickly it wakes up.
+ * <p>
+ * A loop calls {@link #pause()} each time it finds no work, and {@link #reset()} each time it does, so the pauser
+ * can back off the longer the thread is idle. Another thread can call {@link #unpause()} to wake it early.
+ * <p>
+ * The time spent spinning, yielding and parked is recorded, so the cost of a choice can be measured.
+ */
+public interface Pauser {
+
+    /**
+     * Spin with no back off, the lowest latency and a whole CPU.
+     */
+    @NotNull
+    static Pauser busy() {
+        return new AdaptivePauser(Long.MAX_VALUE, 0, 0, 0);
+    }
+
+    /**
+     * Spin briefly then yield, low latency but lets other threads run on the same CPU.
+     */
+    @NotNull
+    static Pauser yielding() {
+        return new AdaptivePauser(100, Long.MAX_VALUE, 0, 0);
+    }
+
+    /**
+     * Park for a fixed time each pause.
+     */
+    @NotNull
+    static Pauser timedPark(long time, @NotNull TimeUnit unit) {
+        long nanos = unit.toNanos(time);
+        return new AdaptivePauser(0, 0, nanos, nanos);
+    }
+
+    /**
+     * Spin, then yield, then park for between 20 us and 1 ms, a balance of latency and CPU.
+     */
+    @NotNull
+    static Pauser adaptive() {
+        return new AdaptivePauser(10_000, 100, TimeUnit.MICROSECONDS.toNanos(20), TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    /**
+     * Spin for a period of time after the last work was done, then park for up to <code>maxPark</code>
+     */
+    @NotNull
+    static Pauser timeBudgeted(long busyTime, long maxPark, @NotNull TimeUnit unit) {
+        return new TimeBudgetedPauser(unit.toNanos(busyTime), unit.toNanos(maxPark));
+    }
+
+    /**
+     * Called when the thread did some work, so the next pause starts from the beginning again.
+     */
+    void reset();
+
+    /**
+     * Called when the thread found nothing to do.
+     */
+    void pause();
+
+    /**
+     * Wake the thread if it is parked. This can be called from any thread.
+     */
+    void unpause();
+
+    long spinningNanos();
+
+    long yieldingNanos();
+
+    long parkedNanos();
+
+    /**
+     * @return the number of times pause() was called
+     */
+    long countPaused();
+
+    default long timePausedNanos() {
+        return spinningNanos() + yieldingNanos() + parkedNanos();
+    }
+
+    /**
+     * Reset the times and count
+     */
+    void resetStats();
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+/**
+ * Spins until <code>busyNS</code> has passed since the last work was done, then parks, doubling the time parked
+ * from 1 us up to <code>maxParkNS</code>. Unlike counting pauses, the time spent busy doesn't depend on how long
+ * each spin takes.
+ */
+public class TimeBudgetedPauser extends AbstractPauser {
+    private static final long MIN_PARK_NS = 1_000;
+
+    private final long busyNS;
+    private final long maxParkNS;
+    private boolean idle;
+    private long idleSince;
+    private long parkNS;
+
+    public TimeBudgetedPauser(long busyNS, long maxParkNS) {
+        this.busyNS = busyNS;
+        this.maxParkNS = Math.max(MIN_PARK_NS, maxParkNS);
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        idle = false;
+        parkNS = MIN_PARK_NS;
+    }
+
+    @Override
+    public void pause() {
+        long now = System.nanoTime();
+        if (!idle) {
+            idle = true;
+            idleSince = now;
+        }
+        if (now - idleSince < busyNS) {
+            spin();
+        } else {
+            park(parkNS);
+            parkNS = Math.min(maxParkNS, parkNS * 2);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TimeBudgetedPauser{busyNS=" + busyNS + ", maxParkNS=" + maxParkNS + '}';
+    }
+}
@@ -20,18 +20,35 @@
 package net.openhft.chronicle.core.threads;
 
 import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.time.SystemTimeProvider;
+import net.openhft.chronicle.core.time.TimeProvider;
+import net.openhft.chronicle.core.util.Histogram;
+import net.openhft.chronicle.core.util.IntervalHistogram;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.TimeUnit;
+
 public class Timer {
 
     @NotNull
     private final EventLoop eventLoop;
+    @NotNull
+    private final TimeProvider timeProvider;
 
     /**
      * @param eventLoop the event loop that the timer task is run on
      */
     public Timer(@NotNull EventLoop eventLoop) {
+        this(eventLoop, SystemTimeProvider.CLOCK);
+    }
+
+    /**
+     * @param eventLoop    the event loop that the timer task is run on
+     * @param timeProvider used by {@link #scheduleAtFixedRate(VanillaEventHandler, long, long, TimeUnit)}
+     */
+    public Timer(@NotNull EventLoop eventLoop, @NotNull TimeProvider timeProvider) {
         this.eventLoop = eventLoop;
+        this.timeProvider = timeProvider;
     }
 
     /**
@@ -48,6 +65,26 @@ public class Timer {
         eventLoop.addHandler(new ScheduledEventHandler(eventHandler, initialDelayMs, periodMs));
     }
 
+    /**
+     * Uses the event loop thread to call the event handler at a fixed rate. Each deadline is calculated from the
+     * first one, so the period doesn't drift when a call is late, and when a call is later than a whole period, the
+     * deadlines missed are skipped and counted.
+     *
+     * @param eventHandler the handler to be called back
+     * @param initialDelay how long to wait before the first call
+     * @param period       the time between deadlines, which can be less than a milli-second
+     * @return the schedule, which can be used to get the lateness and missed deadlines, or cancel it.
+     */
+    @NotNull
+    public FixedRateSchedule scheduleAtFixedRate(@NotNull VanillaEventHandler eventHandler,
+                                                 long initialDelay,
+                                                 long period,
+                                                 @NotNull TimeUnit unit) {
+        FixedRateSchedule schedule = new FixedRateSchedule(eventHandler, timeProvider, unit.toNanos(initialDelay), unit.toNanos(period));
+        eventLoop.addHandler(schedule);
+        return schedule;
+    }
+
     public void schedule(@NotNull Runnable eventHandler, long initialDelayMs) {
         eventLoop.addHandler(new ScheduledEventHandler(() -> {
             eventHandler.run();
@@ -111,5 +148,91 @@ public class Timer {
             return "ScheduledEventHandler<" + eventHandler + '>';
         }
     }
-}
 
+    public static class FixedRateSchedule implements EventHandler {
+        @NotNull
+        private final VanillaEventHandler eventHandler;
+        @NotNull
+        private final TimeProvider timeProvider;
+        private final long periodNS;
+        private final IntervalHistogram lateness = new IntervalHistogram();
+        private long nextDeadlineNS;
+        private volatile long missedDeadlines;
+        private volatile boolean cancelled;
+
+        FixedRateSchedule(@NotNull VanillaEventHandler eventHandler,
+                          @NotNull TimeProvider timeProvider,
+                          long initialDelayNS,
+                          long periodNS) {
+            if (periodNS <= 0)
+                throw new IllegalArgumentException("period must be positive, was " + periodNS);
+            this.eventHandler = eventHandler;
+            this.timeProvider = timeProvider;
+            this.periodNS = periodNS;
+            this.nextDeadlineNS = timeProvider.currentTimeNanos() + initialDelayNS;
+        }
+
+        @Override
+        public boolean action() throws InvalidEventHandlerException, InterruptedException {
+            if (cancelled)
+                throw new InvalidEventHandlerException("cancelled");
+            long now = timeProvider.currentTimeNanos();
+            long deadline = nextDeadlineNS;
+            if (now < deadline)
+                return false;
+
+            lateness.sampleNanos(now - deadline);
+            deadline += periodNS;
+            if (deadline <= now) {
+                long missed = (now - deadline) / periodNS + 1;
+                missedDeadlines += missed;
+                deadline += missed * periodNS;
+            }
+            nextDeadlineNS = deadline;
+
+            try {
+                return eventHandler.action();
+            } catch (RuntimeException e) {
+                Jvm.warn().on(getClass(), "Unexpected runtime exception", e);
+            }
+            return false;
+        }
+
+        /**
+         * @return the number of deadlines skipped because a call was more than a period late.
+         */
+        public long missedDeadlines() {
+            return missedDeadlines;
+        }
+
+        /**
+         * @return a histogram of how late each call was in nano-seconds, since the last call to this method.
+         */
+        @NotNull
+        public Histogram lateness() {
+            return lateness.intervalHistogram();
+        }
+
+        /**
+         * Stop calling the handler, it is removed from the event loop on its next call.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        @NotNull
+        public HandlerPriority priority() {
+            return HandlerPriority.TIMER;
+        }
+
+        @Override
+        public String toString() {
+            return "FixedRateSchedule<" + eventHandler + '>';
+        }
+    }
+}
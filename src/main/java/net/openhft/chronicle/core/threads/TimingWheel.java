@@ -0,0 +1,270 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.Maths;
+import net.openhft.chronicle.core.time.SystemTimeProvider;
+import net.openhft.chronicle.core.time.TimeProvider;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A hashed timing wheel which runs any number of timers from a single {@link HandlerPriority#TIMER} handler, e.g.
+ * <pre>
+ * TimingWheel wheel = new TimingWheel(1, 4096);
+ * eventLoop.addHandler(wheel);
+ * TimingWheel.Timeout timeout = wheel.schedule(this::onSessionTimeout, 30, TimeUnit.SECONDS);
+ * </pre>
+ * The time is read once per call to {@link #action()}, and only the buckets for the ticks which have passed are
+ * visited. Scheduling and cancelling are O(1).
+ * <p>
+ * Timers can be scheduled and cancelled from any thread, however those from other threads are queued and added on
+ * the next call to action(), and cancelled timers are only unlinked on the event loop thread.
+ */
+public class TimingWheel implements EventHandler {
+    @NotNull
+    private final TimeProvider timeProvider;
+    private final long tickMs;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final long startMs;
+    private long tick;
+    private int size;
+    private boolean expiring;
+    @Nullable
+    private volatile Thread loopThread;
+
+    /**
+     * @param tickMs    the resolution of timers in milli-seconds
+     * @param wheelSize the number of buckets, rounded up to a power of 2
+     */
+    public TimingWheel(long tickMs, int wheelSize) {
+        this(SystemTimeProvider.CLOCK, tickMs, wheelSize);
+    }
+
+    public TimingWheel(@NotNull TimeProvider timeProvider, long tickMs, int wheelSize) {
+        if (tickMs < 1)
+            throw new IllegalArgumentException("tickMs must be positive, was " + tickMs);
+        this.timeProvider = timeProvider;
+        this.tickMs = tickMs;
+        int n = Maths.nextPower2(wheelSize, 16);
+        this.buckets = new Timeout[n];
+        this.mask = n - 1;
+        this.startMs = timeProvider.currentTimeMillis();
+    }
+
+    /**
+     * Run a task once after a delay.
+     */
+    @NotNull
+    public Timeout schedule(@NotNull Runnable task, long delay, @NotNull TimeUnit unit) {
+        return add(new Timeout(() -> {
+            task.run();
+            return false;
+        }, ticks(unit.toMillis(delay)), 0));
+    }
+
+    /**
+     * Call a handler periodically, at a fixed rate measured in ticks, until it is cancelled or the handler throws
+     * {@link InvalidEventHandlerException}.
+     */
+    @NotNull
+    public Timeout scheduleAtFixedRate(@NotNull VanillaEventHandler handler, long initialDelay, long period, @NotNull TimeUnit unit) {
+        long periodTicks = ticks(unit.toMillis(period));
+        return add(new Timeout(handler, ticks(unit.toMillis(initialDelay)), Math.max(1, periodTicks)));
+    }
+
+    private long ticks(long ms) {
+        return Math.max(0, (ms + tickMs - 1) / tickMs);
+    }
+
+    @NotNull
+    private Timeout add(@NotNull Timeout timeout) {
+        // the deadline is relative to the current time rather than the last tick processed.
+        timeout.deadline = (timeProvider.currentTimeMillis() - startMs) / tickMs + timeout.deadline;
+        if (Thread.currentThread() == loopThread)
+            link(timeout);
+        else
+            pending.add(timeout);
+        return timeout;
+    }
+
+    private void link(@NotNull Timeout timeout) {
+        if (timeout.cancelled)
+            return;
+        // anything already due is run on the next tick
+        int index = (int) (Math.max(timeout.deadline, tick + 1) & mask);
+        Timeout head = buckets[index];
+        timeout.bucket = index;
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null)
+            head.prev = timeout;
+        buckets[index] = timeout;
+        size++;
+    }
+
+    private void unlink(@NotNull Timeout timeout) {
+        if (timeout.prev == null)
+            buckets[timeout.bucket] = timeout.next;
+        else
+            timeout.prev.next = timeout.next;
+        if (timeout.next != null)
+            timeout.next.prev = timeout.prev;
+        timeout.prev = timeout.next = null;
+        timeout.bucket = -1;
+        size--;
+    }
+
+    @Override
+    public void loopStarted() {
+        loopThread = Thread.currentThread();
+    }
+
+    @Override
+    public boolean action() throws InvalidEventHandlerException {
+        if (loopThread == null)
+            loopThread = Thread.currentThread();
+        for (Timeout timeout; (timeout = pending.poll()) != null; )
+            link(timeout);
+
+        long target = (timeProvider.currentTimeMillis() - startMs) / tickMs;
+        if (target <= tick)
+            return false;
+        boolean busy = false;
+        // after a long pause, each bucket only needs to be visited once.
+        long from = Math.max(tick + 1, target - mask);
+        tick = target;
+        expiring = true;
+        try {
+            for (long t = from; t <= target; t++)
+                busy |= expire((int) (t & mask), target);
+        } finally {
+            expiring = false;
+        }
+        return busy;
+    }
+
+    private boolean expire(int index, long target) {
+        boolean busy = false;
+        Timeout timeout = buckets[index];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.cancelled) {
+                unlink(timeout);
+            } else if (timeout.deadline <= target) {
+                unlink(timeout);
+                busy |= run(timeout, target);
+            }
+            timeout = next;
+        }
+        return busy;
+    }
+
+    private boolean run(@NotNull Timeout timeout, long target) {
+        try {
+            boolean busy = timeout.handler.action();
+            if (timeout.periodTicks > 0 && !timeout.cancelled) {
+                timeout.deadline += timeout.periodTicks;
+                // skip periods missed rather than running them all at once
+                if (timeout.deadline <= target)
+                    timeout.deadline += (target - timeout.deadline) / timeout.periodTicks * timeout.periodTicks + timeout.periodTicks;
+                link(timeout);
+            } else {
+                timeout.cancelled = true;
+            }
+            return busy;
+        } catch (InvalidEventHandlerException e) {
+            timeout.cancelled = true;
+        } catch (InterruptedException e) {
+            timeout.cancelled = true;
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            Jvm.warn().on(getClass(), "Unexpected runtime exception", e);
+            if (timeout.periodTicks > 0 && !timeout.cancelled) {
+                timeout.deadline = target + timeout.periodTicks;
+                link(timeout);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of timers scheduled on the event loop thread, not including those pending.
+     */
+    public int size() {
+        return size;
+    }
+
+    public long tickMs() {
+        return tickMs;
+    }
+
+    @NotNull
+    @Override
+    public HandlerPriority priority() {
+        return HandlerPriority.TIMER;
+    }
+
+    @Override
+    public String toString() {
+        return "TimingWheel{tickMs=" + tickMs + ", buckets=" + buckets.length + ", size=" + size + '}';
+    }
+
+    /**
+     * A handle to a scheduled timer
+     */
+    public final class Timeout {
+        @NotNull
+        final VanillaEventHandler handler;
+        final long periodTicks;
+        long deadline;
+        int bucket = -1;
+        @Nullable
+        Timeout prev, next;
+        volatile boolean cancelled;
+
+        Timeout(@NotNull VanillaEventHandler handler, long delayTicks, long periodTicks) {
+            this.handler = handler;
+            this.deadline = delayTicks;
+            this.periodTicks = periodTicks;
+        }
+
+        /**
+         * Stop this timer. It won't run again after this returns when called on the event loop thread, otherwise it
+         * might run once more if it is already running.
+         */
+        public void cancel() {
+            cancelled = true;
+            // while expiring, it is removed when its bucket is next visited
+            if (bucket >= 0 && !expiring && Thread.currentThread() == loopThread)
+                unlink(this);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.time;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.UnsafeMemory;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * A high resolution wall clock calculated from <code>System.nanoTime()</code> with an offset and rate which are
+ * periodically recalibrated against <code>System.currentTimeMillis()</code>.
+ * <p>
+ * Unlike {@link SystemTimeProvider}, when the estimate drifts outside the current milli-second it is slewed back by
+ * adjusting the rate, rather than stepping by up to 1 ms, so the time is continuous and doesn't go backwards. Only an
+ * error larger than the step threshold, e.g. when the wall clock is set, causes a step.
+ * <p>
+ * The last error measured when calibrating is available as {@link #calibrationErrorNanos()}
+ * <p>
+ * Calibrating alternates between two mutable calibrations so it doesn't allocate. A reader which sees a calibration
+ * being overwritten retries, as for a seqlock.
+ */
+public class CalibratedTimeProvider implements TimeProvider {
+    public static final CalibratedTimeProvider INSTANCE = new CalibratedTimeProvider();
+
+    static final long MS = 1_000_000;
+    private static final double MAX_SLEW = Jvm.getDouble("calibrated.time.maxSlew", 0.01);
+
+    private final LongSupplier nanoTime;
+    private final LongSupplier currentTimeMillis;
+    private final long intervalNS;
+    private final long slewPeriodNS;
+    private final long stepThresholdNS;
+    private final AtomicBoolean calibrating = new AtomicBoolean();
+    private final Calibration calibrationA = new Calibration();
+    private final Calibration calibrationB = new Calibration();
+    @NotNull
+    private volatile Calibration calibration;
+    // the start of the baseline used to estimate the rate of the wall clock
+    private long anchorNS, anchorWallNS;
+    private double frequency = 1.0;
+    private volatile long calibrationErrorNS;
+    private volatile long maxCalibrationErrorNS;
+    private volatile long calibrations;
+    private volatile long steps;
+
+    public CalibratedTimeProvider() {
+        this(1, 100, 10, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param interval      how often to recalibrate
+     * @param slewPeriod    the period over which an error is corrected
+     * @param stepThreshold the error above which the time is stepped rather than slewed
+     */
+    public CalibratedTimeProvider(long interval, long slewPeriod, long stepThreshold, TimeUnit unit) {
+        this(System::nanoTime, System::currentTimeMillis, interval, slewPeriod, stepThreshold, unit);
+    }
+
+    CalibratedTimeProvider(LongSupplier nanoTime, LongSupplier currentTimeMillis, long interval, long slewPeriod, long stepThreshold, TimeUnit unit) {
+        this.nanoTime = nanoTime;
+        this.currentTimeMillis = currentTimeMillis;
+        this.intervalNS = unit.toNanos(interval);
+        this.slewPeriodNS = unit.toNanos(slewPeriod);
+        this.stepThresholdNS = unit.toNanos(stepThreshold);
+        long now = nanoTime.getAsLong();
+        anchorNS = now;
+        anchorWallNS = currentTimeMillis.getAsLong() * MS + MS / 2;
+        calibrationA.set(now, anchorWallNS, 1.0);
+        calibration = calibrationA;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return currentTimeNanos() / 1_000_000;
+    }
+
+    @Override
+    public long currentTimeMicros() {
+        return currentTimeNanos() / 1_000;
+    }
+
+    @Override
+    public long currentTimeNanos() {
+        long now = nanoTime.getAsLong();
+        Calibration cal = this.calibration;
+        if (now - cal.checkedNS >= intervalNS && calibrating.compareAndSet(false, true)) {
+            try {
+                cal = calibrate(now);
+            } finally {
+                calibrating.set(false);
+            }
+        }
+        return cal.wallTime(now);
+    }
+
+    @NotNull
+    private Calibration calibrate(long now) {
+        Calibration cal = this.calibration;
+        long estimate = cal.wallTime(now);
+        long wallNS = currentTimeMillis.getAsLong() * MS;
+        // the estimate is correct if it is within the current milli-second.
+        long error = estimate < wallNS ? estimate - wallNS
+                : estimate >= wallNS + MS ? estimate - (wallNS + MS - 1)
+                : 0;
+        calibrationErrorNS = error;
+        if (Math.abs(error) > maxCalibrationErrorNS)
+            maxCalibrationErrorNS = Math.abs(error);
+        calibrations++;
+
+        // readers may still be using the previous calibration, but not the one before that.
+        Calibration next = cal == calibrationA ? calibrationB : calibrationA;
+        if (Math.abs(error) > stepThresholdNS) {
+            steps++;
+            anchorNS = now;
+            anchorWallNS = wallNS + MS / 2;
+            frequency = 1.0;
+            next.set(now, anchorWallNS, 1.0);
+        } else {
+            // once the baseline is long enough for the milli-second resolution not to matter, use it for the rate.
+            long baselineNS = now - anchorNS;
+            if (baselineNS >= slewPeriodNS * 10) {
+                double measured = (double) (wallNS + MS / 2 - anchorWallNS) / baselineNS;
+                frequency = Math.max(1 - MAX_SLEW, Math.min(1 + MAX_SLEW, measured));
+            }
+            double slew = Math.max(-MAX_SLEW, Math.min(MAX_SLEW, (double) error / slewPeriodNS));
+            next.set(now, estimate, frequency * (1 - slew));
+        }
+        return this.calibration = next;
+    }
+
+    /**
+     * @return the error in the estimate at the last calibration, zero if it was within the milli-second.
+     */
+    public long calibrationErrorNanos() {
+        return calibrationErrorNS;
+    }
+
+    public long maxCalibrationErrorNanos() {
+        return maxCalibrationErrorNS;
+    }
+
+    /**
+     * @return the current rate the time is advancing relative to <code>System.nanoTime()</code>
+     */
+    public double rate() {
+        return calibration.rate();
+    }
+
+    public long calibrations() {
+        return calibrations;
+    }
+
+    /**
+     * @return the number of times the error was too large to slew and the time was stepped.
+     */
+    public long steps() {
+        return steps;
+    }
+
+    public void resetStats() {
+        maxCalibrationErrorNS = 0;
+        calibrations = steps = 0;
+    }
+
+    static final class Calibration {
+        // odd while being set.
+        private volatile int sequence;
+        private long checkedNS;
+        private long baseWallNS;
+        private double rate;
+
+        // only called by the thread calibrating.
+        void set(long checkedNS, long baseWallNS, double rate) {
+            int seq = sequence;
+            sequence = seq + 1;
+            UnsafeMemory.UNSAFE.storeFence();
+            this.checkedNS = checkedNS;
+            this.baseWallNS = baseWallNS;
+            this.rate = rate;
+            sequence = seq + 2;
+        }
+
+        long wallTime(long nanoTime) {
+            for (; ; ) {
+                int seq = sequence;
+                long checkedNS = this.checkedNS;
+                long baseWallNS = this.baseWallNS;
+                double rate = this.rate;
+                UnsafeMemory.UNSAFE.loadFence();
+                if ((seq & 1) == 0 && seq == sequence)
+                    return baseWallNS + (long) ((nanoTime - checkedNS) * rate);
+            }
+        }
+
+        double rate() {
+            for (; ; ) {
+                int seq = sequence;
+                double rate = this.rate;
+                UnsafeMemory.UNSAFE.loadFence();
+                if ((seq & 1) == 0 && seq == sequence)
+                    return rate;
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.time;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.io.AbstractCloseable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A TimeProvider which caches the time, refreshed by a background ticker thread, so reading it is a single volatile
+ * read. The time is only accurate to the resolution given, and doesn't go backwards.
+ * <p>
+ * This is intended for logging and timeouts which don't need nano second precision, e.g.
+ * <pre>
+ * SystemTimeProvider.CLOCK = new CoarseTimeProvider(100, TimeUnit.MICROSECONDS);
+ * </pre>
+ * Closing it stops the ticker, and if it is the <code>SystemTimeProvider.CLOCK</code> this is reset to
+ * {@link SystemTimeProvider#INSTANCE}.
+ */
+public class CoarseTimeProvider extends AbstractCloseable implements TimeProvider {
+    // below this, the ticker busy waits rather than parking as parkNanos can't wake up that often.
+    static final long SPIN_THRESHOLD_NS = Long.getLong("coarse.time.spin.ns", 50_000L);
+
+    @NotNull
+    private final TimeProvider source;
+    private final long resolutionNS;
+    @Nullable
+    private final Runnable onStart;
+    @NotNull
+    private final Thread ticker;
+    private volatile long timeNS;
+
+    public CoarseTimeProvider(long resolution, @NotNull TimeUnit unit) {
+        this(SystemTimeProvider.INSTANCE, resolution, unit, null);
+    }
+
+    /**
+     * @param source     the provider to cache. This shouldn't be <code>SystemTimeProvider.CLOCK</code> if this is to
+     *                   replace it.
+     * @param resolution how often to refresh the time
+     * @param onStart    called on the ticker thread before it starts, e.g. to bind it to an isolated CPU.
+     */
+    public CoarseTimeProvider(@NotNull TimeProvider source, long resolution, @NotNull TimeUnit unit, @Nullable Runnable onStart) {
+        if (resolution <= 0)
+            throw new IllegalArgumentException("resolution must be positive, was " + resolution);
+        this.source = source;
+        this.resolutionNS = unit.toNanos(resolution);
+        this.onStart = onStart;
+        this.timeNS = source.currentTimeNanos();
+        ticker = new Thread(this::tick, "coarse-time-ticker");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    void tick() {
+        if (onStart != null)
+            onStart.run();
+        while (!isClosing()) {
+            long next = System.nanoTime() + resolutionNS;
+            long time = source.currentTimeNanos();
+            if (time > timeNS)
+                timeNS = time;
+            if (resolutionNS < SPIN_THRESHOLD_NS) {
+                while (System.nanoTime() < next)
+                    Jvm.nanoPause();
+            } else {
+                LockSupport.parkNanos(next - System.nanoTime());
+            }
+        }
+    }
+
+    public long resolutionNanos() {
+        return resolutionNS;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return timeNS / 1_000_000;
+    }
+
+    @Override
+    public long currentTimeMicros() {
+        return timeNS / 1_000;
+    }
+
+    @Override
+    public long currentTimeNanos() {
+        return timeNS;
+    }
+
+    @Override
+    protected void performClose() {
+        if (SystemTimeProvider.CLOCK == this)
+            SystemTimeProvider.CLOCK = SystemTimeProvider.INSTANCE;
+        LockSupport.unpark(ticker);
+        try {
+            ticker.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
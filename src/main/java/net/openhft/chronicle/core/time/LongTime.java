@@ -1,5 +1,9 @@
 package net.openhft.chronicle.core.time;
 
+import org.jetbrains.annotations.NotNull;
+
+import static net.openhft.chronicle.core.UnsafeMemory.UNSAFE;
+
 public enum LongTime {
     ;
 
@@ -73,4 +77,126 @@ public enum LongTime {
             return time * 1000_000_000;
         return time;
     }
+
+    // the bulk conversions check the unit once per block, and only convert per element when a block has mixed units.
+    private static final int BLOCK = 256;
+    private static final int SECS = 0, MILLIS = 1, MICROS = 2, NANOS = 3;
+    private static final long[] SCALE = {1, 1000, 1000_000, 1000_000_000};
+
+    /**
+     * Convert a range of times in a mixture of units to milli-seconds in place.
+     */
+    public static void toMillis(@NotNull long[] times, int from, int to) {
+        convert(times, from, to, MILLIS);
+    }
+
+    /**
+     * Convert a range of times in a mixture of units to micro-seconds in place.
+     */
+    public static void toMicros(@NotNull long[] times, int from, int to) {
+        convert(times, from, to, MICROS);
+    }
+
+    /**
+     * Convert a range of times in a mixture of units to nano-seconds in place.
+     */
+    public static void toNanos(@NotNull long[] times, int from, int to) {
+        convert(times, from, to, NANOS);
+    }
+
+    /**
+     * Convert <code>count</code> times in native memory in a mixture of units to milli-seconds in place.
+     */
+    public static void toMillis(long address, int count) {
+        convert(address, count, MILLIS);
+    }
+
+    /**
+     * Convert <code>count</code> times in native memory in a mixture of units to micro-seconds in place.
+     */
+    public static void toMicros(long address, int count) {
+        convert(address, count, MICROS);
+    }
+
+    /**
+     * Convert <code>count</code> times in native memory in a mixture of units to nano-seconds in place.
+     */
+    public static void toNanos(long address, int count) {
+        convert(address, count, NANOS);
+    }
+
+    private static void convert(long[] times, int from, int to, int unit) {
+        if (from < 0 || to > times.length || from > to)
+            throw new ArrayIndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: " + times.length);
+        for (int start = from; start < to; start += BLOCK) {
+            int end = Math.min(to, start + BLOCK);
+            long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+            for (int i = start; i < end; i++) {
+                min = Math.min(min, times[i]);
+                max = Math.max(max, times[i]);
+            }
+            int blockUnit = unitOf(min);
+            if (blockUnit < 0 || blockUnit != unitOf(max)) {
+                for (int i = start; i < end; i++)
+                    times[i] = convert(times[i], unit);
+            } else if (blockUnit < unit) {
+                long factor = SCALE[unit - blockUnit];
+                for (int i = start; i < end; i++)
+                    times[i] *= factor;
+            } else if (blockUnit > unit) {
+                long divisor = SCALE[blockUnit - unit];
+                for (int i = start; i < end; i++)
+                    times[i] /= divisor;
+            }
+        }
+    }
+
+    private static void convert(long address, int count, int unit) {
+        long endAddress = address + (long) count * Long.BYTES;
+        for (long start = address; start < endAddress; start += BLOCK * Long.BYTES) {
+            long end = Math.min(endAddress, start + BLOCK * Long.BYTES);
+            long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+            for (long a = start; a < end; a += Long.BYTES) {
+                long time = UNSAFE.getLong(a);
+                min = Math.min(min, time);
+                max = Math.max(max, time);
+            }
+            int blockUnit = unitOf(min);
+            if (blockUnit < 0 || blockUnit != unitOf(max)) {
+                for (long a = start; a < end; a += Long.BYTES)
+                    UNSAFE.putLong(a, convert(UNSAFE.getLong(a), unit));
+            } else if (blockUnit < unit) {
+                long factor = SCALE[unit - blockUnit];
+                for (long a = start; a < end; a += Long.BYTES)
+                    UNSAFE.putLong(a, UNSAFE.getLong(a) * factor);
+            } else if (blockUnit > unit) {
+                long divisor = SCALE[blockUnit - unit];
+                for (long a = start; a < end; a += Long.BYTES)
+                    UNSAFE.putLong(a, UNSAFE.getLong(a) / divisor);
+            }
+        }
+    }
+
+    private static int unitOf(long time) {
+        if (time < EPOCH_SECS)
+            return -1;
+        if (time < EPOCH_MILLIS)
+            return SECS;
+        if (time < EPOCH_MICROS)
+            return MILLIS;
+        if (time < EPOCH_NANOS)
+            return MICROS;
+        return NANOS;
+    }
+
+    private static long convert(long time, int unit) {
+        switch (unit) {
+            case MILLIS:
+                return toMillis(time);
+            case MICROS:
+                return toMicros(time);
+            default:
+                return toNanos(time);
+        }
+    }
 }
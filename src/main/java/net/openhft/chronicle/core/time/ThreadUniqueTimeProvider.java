@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.time;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Nano second timestamps which are unique across threads for a single process, without a shared CAS.
+ * <p>
+ * Each thread leases one of <code>1 &lt;&lt; threadBits</code> slots, and the slot number is held in the low bits of
+ * its timestamps, so timestamps from different threads can't collide. A thread only needs to keep its own timestamps
+ * increasing, which it does without writing to shared memory. The cost is a resolution of <code>1 &lt;&lt;
+ * threadBits</code> ns, about 1 us for the default of 10 bits.
+ * <p>
+ * A slot is reused once its thread has died, continuing from the last timestamp that thread returned.
+ */
+public class ThreadUniqueTimeProvider implements TimeProvider {
+    public static final ThreadUniqueTimeProvider INSTANCE = new ThreadUniqueTimeProvider();
+
+    private final int threadBits;
+    private final long threadMask;
+    private final AtomicReferenceArray<Slot> slots;
+    private final ThreadLocal<Slot> slot = ThreadLocal.withInitial(this::acquireSlot);
+    private TimeProvider provider = SystemTimeProvider.INSTANCE;
+
+    /**
+     * Create new instances for testing purposes as it is stateful
+     */
+    public ThreadUniqueTimeProvider() {
+        this(10);
+    }
+
+    /**
+     * @param threadBits the number of low bits used for the thread, limiting the number of concurrent threads to
+     *                   <code>1 &lt;&lt; threadBits</code>
+     */
+    public ThreadUniqueTimeProvider(int threadBits) {
+        if (threadBits < 1 || threadBits > 20)
+            throw new IllegalArgumentException("threadBits must be between 1 and 20, was " + threadBits);
+        this.threadBits = threadBits;
+        this.threadMask = (1L << threadBits) - 1;
+        this.slots = new AtomicReferenceArray<>(1 << threadBits);
+    }
+
+    public ThreadUniqueTimeProvider provider(TimeProvider provider) {
+        this.provider = provider;
+        return this;
+    }
+
+    public int threadBits() {
+        return threadBits;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return provider.currentTimeMillis();
+    }
+
+    /**
+     * @return the time in micro-seconds, this is not unique.
+     */
+    @Override
+    public long currentTimeMicros() {
+        return provider.currentTimeMicros();
+    }
+
+    /**
+     * @return a nano second timestamp which is unique across threads and increasing for each thread.
+     */
+    @Override
+    public long currentTimeNanos() {
+        Slot slot = this.slot.get();
+        long time = (provider.currentTimeNanos() & ~threadMask) | slot.index;
+        long last = slot.last;
+        if (time <= last)
+            time = last + threadMask + 1;
+        slot.last = time;
+        return time;
+    }
+
+    /**
+     * Reserve a block of unique timestamps, so the time only needs to be read once.
+     *
+     * @param count of timestamps to reserve
+     * @return the first of <code>count</code> nano-second timestamps, <code>1 &lt;&lt; threadBits</code> ns apart,
+     * which are all unique.
+     */
+    public long reserveUniqueTimeNanos(int count) {
+        if (count < 1)
+            throw new IllegalArgumentException("count must be positive, was " + count);
+        long time = currentTimeNanos();
+        slot.get().last = time + (count - 1) * (threadMask + 1);
+        return time;
+    }
+
+    @NotNull
+    private Slot acquireSlot() {
+        Thread thread = Thread.currentThread();
+        int length = slots.length();
+        int start = (int) (thread.getId() & threadMask);
+        for (int i = 0; i < length; i++) {
+            int index = (start + i) & (length - 1);
+            Slot prev = slots.get(index);
+            if (prev != null && prev.isAlive())
+                continue;
+            Slot next = new Slot(thread, index, prev == null ? 0 : prev.last);
+            if (slots.compareAndSet(index, prev, next))
+                return next;
+        }
+        throw new IllegalStateException("More than " + length + " threads using " + getClass().getSimpleName());
+    }
+
+    static final class Slot {
+        final WeakReference<Thread> owner;
+        final int index;
+        // only read and written by the owning thread, or by a new owner after it has died.
+        long last;
+
+        Slot(Thread owner, int index, long last) {
+            this.owner = new WeakReference<>(owner);
+            this.index = index;
+            this.last = last;
+        }
+
+        boolean isAlive() {
+            Thread thread = owner.get();
+            return thread != null && thread.isAlive();
+        }
+    }
+}
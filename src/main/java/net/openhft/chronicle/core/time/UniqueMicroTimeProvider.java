@@ -75,4 +75,47 @@ public class UniqueMicroTimeProvider implements TimeProvider {
             Jvm.nanoPause();
         }
     }
+
+    /**
+     * Reserve a block of unique timestamps with a single CAS.
+     *
+     * @param count of timestamps to reserve
+     * @return the first of <code>count</code> consecutive micro-second timestamps which are all unique.
+     */
+    public long reserveUniqueTimeMicros(int count) {
+        if (count < 1)
+            throw new IllegalArgumentException("count must be positive, was " + count);
+        long time = provider.currentTimeMicros();
+        while (true) {
+            long time0 = lastTime.get();
+            if (time0 >= time)
+                time = time0 + 1;
+            if (lastTime.compareAndSet(time0, time + count - 1))
+                return time;
+            Jvm.nanoPause();
+        }
+    }
+
+    /**
+     * Reserve a block of unique timestamps with a single CAS.
+     *
+     * @param count of timestamps to reserve
+     * @return the first of <code>count</code> nano-second timestamps, 1000 ns apart, which are all unique.
+     */
+    public long reserveUniqueTimeNanos(int count) {
+        if (count < 1)
+            throw new IllegalArgumentException("count must be positive, was " + count);
+        long time = provider.currentTimeNanos();
+        long timeUS = time / 1000;
+        while (true) {
+            long time0 = lastTime.get();
+            if (time0 >= time / 1000) {
+                timeUS = time0 + 1;
+                time = timeUS * 1000;
+            }
+            if (lastTime.compareAndSet(time0, timeUS + count - 1))
+                return time;
+            Jvm.nanoPause();
+        }
+    }
 }
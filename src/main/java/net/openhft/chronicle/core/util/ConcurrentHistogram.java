@@ -0,0 +1,229 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import net.openhft.chronicle.core.Maths;
+import net.openhft.chronicle.core.UnsafeMemory;
+import org.jetbrains.annotations.NotNull;
+import sun.misc.Unsafe;
+
+/**
+ * A {@link Histogram} which can be sampled by many threads at once.
+ * <p>
+ * Samples are counted in one of a number of stripes chosen by the calling thread, so writers on different
+ * threads rarely touch the same cache line and never need a lock. {@link #snapshot(Histogram)} sums the stripes
+ * into a plain Histogram while writers continue to sample.
+ */
+public class ConcurrentHistogram implements NanoSampler {
+    private static final long INT_ARRAY_BASE = Unsafe.ARRAY_INT_BASE_OFFSET;
+    private static final long LONG_ARRAY_BASE = Unsafe.ARRAY_LONG_BASE_OFFSET;
+    // one cache line per stripe for the over and under range counts.
+    private static final int RANGE_STRIDE = 8;
+    private static final int OVER_RANGE = 0;
+    private static final int UNDER_RANGE = 1;
+
+    private final int powersOf2;
+    private final int fractionBits;
+    private final double minValue;
+    private final long floor;
+    private final int buckets;
+    private final int stripeMask;
+    private final int[][] stripes;
+    private final long[] rangeCounts;
+
+    public ConcurrentHistogram() {
+        this(42, 7);
+    }
+
+    public ConcurrentHistogram(int powersOf2, int fractionBits) {
+        this(powersOf2, fractionBits, 1.0);
+    }
+
+    public ConcurrentHistogram(int powersOf2, int fractionBits, double minValue) {
+        this(powersOf2, fractionBits, minValue, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public ConcurrentHistogram(int powersOf2, int fractionBits, double minValue, int stripes) {
+        this.powersOf2 = powersOf2;
+        this.fractionBits = fractionBits;
+        this.minValue = minValue;
+        this.floor = Double.doubleToRawLongBits(minValue) >> (52 - fractionBits);
+        this.buckets = powersOf2 << fractionBits;
+        int count = Maths.nextPower2(stripes, 1);
+        this.stripeMask = count - 1;
+        this.stripes = new int[count][];
+        for (int i = 0; i < count; i++)
+            this.stripes[i] = new int[buckets];
+        this.rangeCounts = new long[(count + 1) * RANGE_STRIDE];
+    }
+
+    /**
+     * @return ConcurrentHistogram for use with System.nanoTime() up to 4 second delay.
+     */
+    @NotNull
+    public static ConcurrentHistogram timeMicros() {
+        return new ConcurrentHistogram(22 /* 4 seconds */, 3 /* 2 decimal places */, 1000.0 /* nano-seconds */);
+    }
+
+    public int fractionBits() {
+        return fractionBits;
+    }
+
+    public int powersOf2() {
+        return powersOf2;
+    }
+
+    public int stripes() {
+        return stripeMask + 1;
+    }
+
+    private int stripeIndex() {
+        int h = (int) Thread.currentThread().getId() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & stripeMask;
+    }
+
+    public int sample(double time) {
+        int bucket = bucketFor(time);
+        int stripe = stripeIndex();
+        if (bucket >= buckets)
+            addRange(stripe, OVER_RANGE);
+        else if (bucket >= 0)
+            UnsafeMemory.INSTANCE.addInt(stripes[stripe], INT_ARRAY_BASE + ((long) bucket << 2), 1);
+        else
+            addRange(stripe, UNDER_RANGE);
+        return bucket;
+    }
+
+    /**
+     * Sample <code>time</code> and back-fill the samples missed while it was taken, a bucket at a time, as
+     * {@link Histogram#sample(double, double)} does.
+     */
+    public int sample(double time, double expectedInterval) {
+        int bucket = sample(time);
+        if (expectedInterval > 0 && time >= 2 * expectedInterval)
+            backFill(time, expectedInterval);
+        return bucket;
+    }
+
+    private void backFill(double time, double interval) {
+        long n = (long) ((time - interval) / interval);
+        if (n <= 0)
+            return;
+        int stripe = stripeIndex();
+        int[] counts = stripes[stripe];
+        long k = 0;
+        int bucket = bucketFor(time - interval);
+        if (bucket >= buckets) {
+            k = Math.min(n, (long) ((time - bucketStart(buckets)) / interval));
+            addRange(stripe, OVER_RANGE, k);
+            bucket = buckets - 1;
+        }
+        for (; bucket >= 0 && k < n; bucket--) {
+            long kMax = Math.min(n, (long) ((time - bucketStart(bucket)) / interval));
+            if (kMax > k)
+                UnsafeMemory.INSTANCE.addInt(counts, INT_ARRAY_BASE + ((long) bucket << 2), (int) (kMax - k));
+            k = kMax;
+        }
+        if (k < n)
+            addRange(stripe, UNDER_RANGE, n - k);
+    }
+
+    private int bucketFor(double time) {
+        return (int) ((Double.doubleToRawLongBits(time) >> (52 - fractionBits)) - floor);
+    }
+
+    private double bucketStart(int bucket) {
+        return Double.longBitsToDouble((bucket + floor) << (52 - fractionBits));
+    }
+
+    private void addRange(int stripe, int counter) {
+        addRange(stripe, counter, 1);
+    }
+
+    private void addRange(int stripe, int counter, long delta) {
+        UnsafeMemory.INSTANCE.addLong(rangeCounts, rangeOffset(stripe, counter), delta);
+    }
+
+    private static long rangeOffset(int stripe, int counter) {
+        // the first cache line is left as padding.
+        return LONG_ARRAY_BASE + ((long) ((stripe + 1) * RANGE_STRIDE + counter) << 3);
+    }
+
+    @Override
+    public void sampleNanos(long nanos) {
+        sample(nanos);
+    }
+
+    @Override
+    public void sampleNanos(long nanos, long expectedIntervalNanos) {
+        sample(nanos, expectedIntervalNanos);
+    }
+
+    /**
+     * @return a new Histogram holding the samples recorded so far.
+     */
+    @NotNull
+    public Histogram snapshot() {
+        Histogram histogram = new Histogram(powersOf2, fractionBits, minValue);
+        snapshot(histogram);
+        return histogram;
+    }
+
+    /**
+     * Replace the contents of <code>histogram</code> with the samples recorded so far without allocating.
+     * <p>
+     * Writers are not stopped. A sample recorded while the snapshot is taken may or may not be included,
+     * however the totalCount of the result is always the sum of the counts it holds.
+     *
+     * @param histogram to overwrite, which must have the same powersOf2 and fractionBits
+     */
+    public void snapshot(@NotNull Histogram histogram) {
+        if (histogram.powersOf2() != powersOf2 || histogram.fractionBits() != fractionBits)
+            throw new IllegalArgumentException("Histogram must have powersOf2=" + powersOf2 + " fractionBits=" + fractionBits);
+        histogram.reset();
+        int[] sampleCount = histogram.sampleCount();
+        long total = 0;
+        for (int[] stripe : stripes) {
+            for (int i = 0; i < buckets; i++) {
+                int count = UnsafeMemory.INSTANCE.readVolatileInt(stripe, INT_ARRAY_BASE + ((long) i << 2));
+                sampleCount[i] += count;
+                total += count;
+            }
+        }
+        long overRange = 0;
+        for (int s = 0; s <= stripeMask; s++) {
+            overRange += UnsafeMemory.INSTANCE.readVolatileLong(rangeCounts, rangeOffset(s, OVER_RANGE));
+            total += UnsafeMemory.INSTANCE.readVolatileLong(rangeCounts, rangeOffset(s, UNDER_RANGE));
+        }
+        histogram.init(powersOf2, fractionBits, overRange, total + overRange, floor);
+    }
+
+    /**
+     * Clear all the counts. Samples recorded concurrently with a reset may be partially lost.
+     */
+    public void reset() {
+        for (int[] stripe : stripes)
+            for (int i = 0; i < buckets; i++)
+                UnsafeMemory.INSTANCE.writeOrderedInt(stripe, INT_ARRAY_BASE + ((long) i << 2), 0);
+        for (int s = 0; s <= stripeMask; s++) {
+            UnsafeMemory.INSTANCE.writeOrderedLong(rangeCounts, rangeOffset(s, OVER_RANGE), 0);
+            UnsafeMemory.INSTANCE.writeOrderedLong(rangeCounts, rangeOffset(s, UNDER_RANGE), 0);
+        }
+    }
+}
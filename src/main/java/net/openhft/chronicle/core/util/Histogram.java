@@ -38,6 +38,7 @@ public class Histogram implements NanoSampler {
     private long totalCount;
     private long floor;
     private int[] sampleCount;
+    private double expectedInterval = 0;
 
     public Histogram() {
         this(42, 7);
@@ -154,8 +155,43 @@ public class Histogram implements NanoSampler {
             sampleCount[i] += h.sampleCount[i];
     }
 
+    /**
+     * @return the expected interval between samples used to correct for coordinated omission, or 0 if not used.
+     */
+    public double expectedInterval() {
+        return expectedInterval;
+    }
+
+    /**
+     * Correct for coordinated omission when sampling at a fixed rate. When a sample is more than
+     * <code>expectedInterval</code>, the samples which would have been recorded while waiting are added,
+     * i.e. time - expectedInterval, time - 2 * expectedInterval ... down to expectedInterval.
+     *
+     * @param expectedInterval between samples in the same units as the samples, or 0 to turn off.
+     * @return this
+     */
+    @NotNull
+    public Histogram expectedInterval(double expectedInterval) {
+        this.expectedInterval = expectedInterval;
+        return this;
+    }
+
     public int sample(double time) {
-        int bucket = (int) ((Double.doubleToRawLongBits(time) >> (52 - fractionBits)) - floor);
+        return sample(time, expectedInterval);
+    }
+
+    /**
+     * Sample a time, adding the samples missed while waiting if it is more than <code>expectedInterval</code>.
+     */
+    public int sample(double time, double expectedInterval) {
+        int bucket = sample0(time);
+        if (expectedInterval > 0 && time >= 2 * expectedInterval)
+            backFill(time, expectedInterval);
+        return bucket;
+    }
+
+    private int sample0(double time) {
+        int bucket = bucketFor(time);
         if (bucket >= sampleCount.length)
             overRange++;
         else if (bucket >= 0)
@@ -164,6 +200,35 @@ public class Histogram implements NanoSampler {
         return bucket;
     }
 
+    private int bucketFor(double time) {
+        return (int) ((Double.doubleToRawLongBits(time) >> (52 - fractionBits)) - floor);
+    }
+
+    private double bucketStart(int bucket) {
+        return Double.longBitsToDouble((bucket + floor) << (52 - fractionBits));
+    }
+
+    // adds time - k * interval for k = 1 .. n a bucket at a time rather than a sample at a time.
+    private void backFill(double time, double interval) {
+        long n = (long) ((time - interval) / interval);
+        if (n <= 0)
+            return;
+        totalCount += n;
+        long k = 0;
+        int bucket = bucketFor(time - interval);
+        if (bucket >= sampleCount.length) {
+            k = Math.min(n, (long) ((time - bucketStart(sampleCount.length)) / interval));
+            overRange += k;
+            bucket = sampleCount.length - 1;
+        }
+        // samples below the first bucket are only counted in the totalCount.
+        for (; bucket >= 0 && k < n; bucket--) {
+            long kMax = Math.min(n, (long) ((time - bucketStart(bucket)) / interval));
+            sampleCount[bucket] += (int) (kMax - k);
+            k = kMax;
+        }
+    }
+
     public double min() {
         return percentile(0.0);
     }
@@ -327,4 +392,9 @@ public class Histogram implements NanoSampler {
     public void sampleNanos(long nanos) {
         sample(nanos);
     }
+
+    @Override
+    public void sampleNanos(long nanos, long expectedIntervalNanos) {
+        sample(nanos, expectedIntervalNanos);
+    }
 }
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import static net.openhft.chronicle.core.UnsafeMemory.UNSAFE;
+
+/**
+ * Compact binary encoding of a {@link Histogram}.
+ * <p>
+ * Only non-zero buckets are written, as the gap from the previous non-zero bucket and the count, all as
+ * stop-bit encoded (varint) values. The format is
+ * <pre>
+ * byte version, powersOf2, fractionBits, floor (zig-zag), overRange, totalCount, nonZeroBuckets,
+ * then for each non-zero bucket: gap, count
+ * </pre>
+ * Encoded histograms can be added to a Histogram directly without decoding into an intermediate object.
+ */
+public enum HistogramEncoding {
+    ;
+    static final byte VERSION = 1;
+
+    /**
+     * @return the exact number of bytes {@link #encode(Histogram, ByteBuffer)} will write.
+     */
+    public static int encodedSize(@NotNull Histogram h) {
+        int size = 1
+                + varIntSize(h.powersOf2())
+                + varIntSize(h.fractionBits())
+                + varLongSize(zigZag(h.floor()))
+                + varLongSize(h.overRange())
+                + varLongSize(h.totalCount());
+        int[] sampleCount = h.sampleCount();
+        int length = h.powersOf2() << h.fractionBits();
+        int nonZero = 0;
+        int prev = -1;
+        for (int i = 0; i < length; i++) {
+            int count = sampleCount[i];
+            if (count == 0)
+                continue;
+            size += varIntSize(i - prev - 1) + varIntSize(count);
+            prev = i;
+            nonZero++;
+        }
+        return size + varIntSize(nonZero);
+    }
+
+    /**
+     * Write the histogram from the buffer's position.
+     *
+     * @throws BufferOverflowException if there is not {@link #encodedSize(Histogram)} bytes remaining.
+     */
+    public static void encode(@NotNull Histogram h, @NotNull ByteBuffer bb) throws BufferOverflowException {
+        writeHeader(h, bb);
+        int[] sampleCount = h.sampleCount();
+        int length = h.powersOf2() << h.fractionBits();
+        writeVarInt(bb, nonZero(sampleCount, length));
+        int prev = -1;
+        for (int i = 0; i < length; i++) {
+            int count = sampleCount[i];
+            if (count == 0)
+                continue;
+            writeVarInt(bb, i - prev - 1);
+            writeVarInt(bb, count);
+            prev = i;
+        }
+    }
+
+    /**
+     * Write the histogram to native memory which must have at least {@link #encodedSize(Histogram)} bytes.
+     *
+     * @return the number of bytes written.
+     */
+    public static long encode(@NotNull Histogram h, long address) {
+        long pos = address;
+        UNSAFE.putByte(pos++, VERSION);
+        pos = writeVarLong(pos, h.powersOf2());
+        pos = writeVarLong(pos, h.fractionBits());
+        pos = writeVarLong(pos, zigZag(h.floor()));
+        pos = writeVarLong(pos, h.overRange());
+        pos = writeVarLong(pos, h.totalCount());
+        int[] sampleCount = h.sampleCount();
+        int length = h.powersOf2() << h.fractionBits();
+        pos = writeVarLong(pos, nonZero(sampleCount, length));
+        int prev = -1;
+        for (int i = 0; i < length; i++) {
+            int count = sampleCount[i];
+            if (count == 0)
+                continue;
+            pos = writeVarLong(pos, i - prev - 1);
+            pos = writeVarLong(pos, count & 0xFFFFFFFFL);
+            prev = i;
+        }
+        return pos - address;
+    }
+
+    /**
+     * Replace the contents of <code>h</code> with an encoded histogram, reusing its arrays where possible.
+     */
+    public static void decode(@NotNull ByteBuffer bb, @NotNull Histogram h) throws BufferUnderflowException {
+        readVersion(bb.get());
+        int powersOf2 = (int) readVarLong(bb);
+        int fractionBits = (int) readVarLong(bb);
+        long floor = unZigZag(readVarLong(bb));
+        long overRange = readVarLong(bb);
+        long totalCount = readVarLong(bb);
+        h.reset();
+        h.init(powersOf2, fractionBits, overRange, totalCount, floor);
+        addBuckets(bb, h.sampleCount());
+    }
+
+    /**
+     * Add an encoded histogram to <code>h</code>, which must have the same shape.
+     */
+    public static void merge(@NotNull ByteBuffer bb, @NotNull Histogram h) throws BufferUnderflowException, IllegalArgumentException {
+        readVersion(bb.get());
+        checkShape(h, (int) readVarLong(bb), (int) readVarLong(bb), unZigZag(readVarLong(bb)));
+        long overRange = readVarLong(bb);
+        long totalCount = readVarLong(bb);
+        h.init(h.powersOf2(), h.fractionBits(), h.overRange() + overRange, h.totalCount() + totalCount, h.floor());
+        addBuckets(bb, h.sampleCount());
+    }
+
+    /**
+     * Add many encoded histograms to <code>h</code>. Each buffer is read from its position.
+     */
+    public static void merge(@NotNull ByteBuffer[] encoded, @NotNull Histogram h) throws BufferUnderflowException, IllegalArgumentException {
+        for (ByteBuffer bb : encoded)
+            merge(bb, h);
+    }
+
+    /**
+     * Replace the contents of <code>h</code> with a histogram encoded in native memory.
+     *
+     * @return the number of bytes read.
+     */
+    public static long decode(long address, @NotNull Histogram h) {
+        long pos = address;
+        readVersion(UNSAFE.getByte(pos++));
+        long powersOf2 = readVarLong(pos);
+        pos += varLongSize(powersOf2);
+        long fractionBits = readVarLong(pos);
+        pos += varLongSize(fractionBits);
+        long floor = readVarLong(pos);
+        pos += varLongSize(floor);
+        long overRange = readVarLong(pos);
+        pos += varLongSize(overRange);
+        long totalCount = readVarLong(pos);
+        pos += varLongSize(totalCount);
+        h.reset();
+        h.init((int) powersOf2, (int) fractionBits, overRange, totalCount, unZigZag(floor));
+        return addBuckets(pos, h.sampleCount()) - address;
+    }
+
+    /**
+     * Add a histogram encoded in native memory to <code>h</code>, which must have the same shape.
+     *
+     * @return the number of bytes read.
+     */
+    public static long merge(long address, @NotNull Histogram h) throws IllegalArgumentException {
+        long pos = address;
+        readVersion(UNSAFE.getByte(pos++));
+        long powersOf2 = readVarLong(pos);
+        pos += varLongSize(powersOf2);
+        long fractionBits = readVarLong(pos);
+        pos += varLongSize(fractionBits);
+        long floor = readVarLong(pos);
+        pos += varLongSize(floor);
+        checkShape(h, (int) powersOf2, (int) fractionBits, unZigZag(floor));
+        long overRange = readVarLong(pos);
+        pos += varLongSize(overRange);
+        long totalCount = readVarLong(pos);
+        pos += varLongSize(totalCount);
+        h.init(h.powersOf2(), h.fractionBits(), h.overRange() + overRange, h.totalCount() + totalCount, h.floor());
+        return addBuckets(pos, h.sampleCount()) - address;
+    }
+
+    private static void writeHeader(@NotNull Histogram h, @NotNull ByteBuffer bb) {
+        bb.put(VERSION);
+        writeVarInt(bb, h.powersOf2());
+        writeVarInt(bb, h.fractionBits());
+        writeVarLong(bb, zigZag(h.floor()));
+        writeVarLong(bb, h.overRange());
+        writeVarLong(bb, h.totalCount());
+    }
+
+    private static void addBuckets(@NotNull ByteBuffer bb, int[] sampleCount) {
+        int nonZero = (int) readVarLong(bb);
+        int index = -1;
+        for (int i = 0; i < nonZero; i++) {
+            index += (int) readVarLong(bb) + 1;
+            sampleCount[index] += (int) readVarLong(bb);
+        }
+    }
+
+    private static long addBuckets(long pos, int[] sampleCount) {
+        long nonZero = readVarLong(pos);
+        pos += varLongSize(nonZero);
+        int index = -1;
+        for (long i = 0; i < nonZero; i++) {
+            long gap = readVarLong(pos);
+            pos += varLongSize(gap);
+            long count = readVarLong(pos);
+            pos += varLongSize(count);
+            index += (int) gap + 1;
+            sampleCount[index] += (int) count;
+        }
+        return pos;
+    }
+
+    private static void readVersion(byte version) {
+        if (version != VERSION)
+            throw new IllegalArgumentException("Unknown histogram encoding version " + version);
+    }
+
+    private static void checkShape(@NotNull Histogram h, int powersOf2, int fractionBits, long floor) {
+        if (h.powersOf2() != powersOf2 || h.fractionBits() != fractionBits || h.floor() != floor)
+            throw new IllegalArgumentException("Cannot merge powersOf2=" + powersOf2 + ", fractionBits=" + fractionBits + ", floor=" + floor +
+                    " into powersOf2=" + h.powersOf2() + ", fractionBits=" + h.fractionBits() + ", floor=" + h.floor());
+    }
+
+    private static int nonZero(int[] sampleCount, int length) {
+        int nonZero = 0;
+        for (int i = 0; i < length; i++)
+            if (sampleCount[i] != 0)
+                nonZero++;
+        return nonZero;
+    }
+
+    private static long zigZag(long n) {
+        return (n << 1) ^ (n >> 63);
+    }
+
+    private static long unZigZag(long n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    private static int varIntSize(int n) {
+        return varLongSize(n & 0xFFFFFFFFL);
+    }
+
+    private static int varLongSize(long n) {
+        int size = 1;
+        while ((n >>>= 7) != 0)
+            size++;
+        return size;
+    }
+
+    private static void writeVarInt(@NotNull ByteBuffer bb, int n) {
+        writeVarLong(bb, n & 0xFFFFFFFFL);
+    }
+
+    private static void writeVarLong(@NotNull ByteBuffer bb, long n) {
+        while ((n & ~0x7FL) != 0) {
+            bb.put((byte) (n | 0x80));
+            n >>>= 7;
+        }
+        bb.put((byte) n);
+    }
+
+    private static long writeVarLong(long pos, long n) {
+        while ((n & ~0x7FL) != 0) {
+            UNSAFE.putByte(pos++, (byte) (n | 0x80));
+            n >>>= 7;
+        }
+        UNSAFE.putByte(pos++, (byte) n);
+        return pos;
+    }
+
+    private static long readVarLong(@NotNull ByteBuffer bb) {
+        long n = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = bb.get();
+            n |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                return n;
+        }
+    }
+
+    // the encoding is canonical so the caller can use varLongSize to skip the value read.
+    private static long readVarLong(long pos) {
+        long n = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = UNSAFE.getByte(pos++);
+            n |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                return n;
+        }
+    }
+}
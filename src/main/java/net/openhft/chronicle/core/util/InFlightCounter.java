@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.Maths;
+import net.openhft.chronicle.core.UnsafeMemory;
+import sun.misc.Unsafe;
+
+/**
+ * Counts the threads using a resource, striped by thread so users rarely share a cache line, so its close can wait
+ * for them to finish before the memory is released.
+ * <p>
+ * A user calls {@link #enter()} then checks whether the resource is closing, and {@link #exit(int)} when done. The
+ * close marks the resource closing and then calls {@link #awaitExits()}, so either the user sees it closing or the
+ * close sees the user.
+ */
+final class InFlightCounter {
+    private static final long INT_ARRAY_BASE = Unsafe.ARRAY_INT_BASE_OFFSET;
+    // one cache line per stripe.
+    private static final int STRIDE = 16;
+
+    private final int stripeMask;
+    private final int[] counts;
+
+    InFlightCounter() {
+        int stripes = Maths.nextPower2(Runtime.getRuntime().availableProcessors() * 2, 1);
+        stripeMask = stripes - 1;
+        // the first cache line is left as padding.
+        counts = new int[(stripes + 1) * STRIDE];
+    }
+
+    /**
+     * @return the stripe to pass to {@link #exit(int)}
+     */
+    int enter() {
+        int h = (int) Thread.currentThread().getId() * 0x9E3779B9;
+        int stripe = (h ^ (h >>> 16)) & stripeMask;
+        UnsafeMemory.INSTANCE.addInt(counts, offset(stripe), 1);
+        return stripe;
+    }
+
+    void exit(int stripe) {
+        UnsafeMemory.INSTANCE.addInt(counts, offset(stripe), -1);
+    }
+
+    /**
+     * Wait for the users which entered before the resource was marked closing.
+     */
+    void awaitExits() {
+        for (int s = 0; s <= stripeMask; s++)
+            while (UnsafeMemory.INSTANCE.readVolatileInt(counts, offset(s)) != 0)
+                Jvm.nanoPause();
+    }
+
+    private static long offset(int stripe) {
+        return INT_ARRAY_BASE + ((long) (stripe + 1) * STRIDE << 2);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import net.openhft.chronicle.core.Jvm;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Records samples from a single writing thread into one of two {@link Histogram}s, so a reader can take the samples
+ * for each interval without stopping the writer or calling {@link Histogram#reset()} under its feet.
+ * <p>
+ * {@link #intervalHistogram()} swaps in the other, cleared, buffer and returns the one the writer was using.
+ * The two buffers are recycled so steady state swaps don't allocate.
+ */
+public class IntervalHistogram implements NanoSampler {
+    private volatile Histogram active;
+    private Histogram inactive;
+    // odd while the writer is sampling.
+    private volatile long writerSequence;
+
+    public IntervalHistogram() {
+        this(new Histogram(), new Histogram());
+    }
+
+    public IntervalHistogram(int powersOf2, int fractionBits) {
+        this(powersOf2, fractionBits, 1.0);
+    }
+
+    public IntervalHistogram(int powersOf2, int fractionBits, double minValue) {
+        this(new Histogram(powersOf2, fractionBits, minValue), new Histogram(powersOf2, fractionBits, minValue));
+    }
+
+    private IntervalHistogram(@NotNull Histogram active, @NotNull Histogram inactive) {
+        this.active = active;
+        this.inactive = inactive;
+    }
+
+    /**
+     * @return IntervalHistogram for use with System.nanoTime() up to 4 second delay.
+     */
+    @NotNull
+    public static IntervalHistogram timeMicros() {
+        return new IntervalHistogram(Histogram.timeMicros(), Histogram.timeMicros());
+    }
+
+    /**
+     * Must only be called by the writing thread.
+     */
+    public int sample(double time) {
+        long seq = writerSequence;
+        writerSequence = seq + 1;
+        try {
+            return active.sample(time);
+        } finally {
+            writerSequence = seq + 2;
+        }
+    }
+
+    /**
+     * Must only be called by the writing thread.
+     *
+     * @see Histogram#sample(double, double)
+     */
+    public int sample(double time, double expectedInterval) {
+        long seq = writerSequence;
+        writerSequence = seq + 1;
+        try {
+            return active.sample(time, expectedInterval);
+        } finally {
+            writerSequence = seq + 2;
+        }
+    }
+
+    @Override
+    public void sampleNanos(long nanos) {
+        sample(nanos);
+    }
+
+    @Override
+    public void sampleNanos(long nanos, long expectedIntervalNanos) {
+        sample(nanos, expectedIntervalNanos);
+    }
+
+    /**
+     * Swap buffers and return the samples recorded since the previous call.
+     * <p>
+     * The Histogram returned is reused, and only valid until the next call to this method.
+     *
+     * @return the samples for the interval just finished.
+     */
+    @NotNull
+    public synchronized Histogram intervalHistogram() {
+        Histogram next = inactive;
+        next.reset();
+        Histogram previous = active;
+        active = next;
+        // wait for a sample to the previous buffer to finish.
+        long seq = writerSequence;
+        if ((seq & 1) != 0)
+            while (writerSequence == seq)
+                Jvm.nanoPause();
+        inactive = previous;
+        return previous;
+    }
+
+    /**
+     * Swap buffers and add the samples recorded since the previous call to <code>total</code>
+     *
+     * @param total to accumulate into.
+     * @return the samples for the interval just finished, only valid until the next swap.
+     */
+    @NotNull
+    public synchronized Histogram intervalHistogram(@NotNull Histogram total) {
+        Histogram interval = intervalHistogram();
+        total.add(interval);
+        return interval;
+    }
+}
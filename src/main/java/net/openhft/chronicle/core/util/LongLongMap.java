@@ -0,0 +1,224 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import net.openhft.chronicle.core.Maths;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * A map of <code>long</code> to <code>long</code> using open addressing with linear probing, which doesn't box or
+ * create garbage except when it grows.
+ * <p>
+ * A key of 0 marks an empty slot, so the entry for the key 0 is held separately. Methods return the
+ * <code>noEntryValue</code> when there is no entry. This class is not thread safe.
+ */
+public class LongLongMap {
+    private final long noEntryValue;
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+    private boolean hasZeroKey;
+    private long zeroKeyValue;
+
+    public LongLongMap() {
+        this(16, 0);
+    }
+
+    public LongLongMap(int expectedSize, long noEntryValue) {
+        this.noEntryValue = noEntryValue;
+        allocate(Maths.nextPower2(expectedSize * 2, 16));
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        resizeThreshold = capacity / 2;
+    }
+
+    private int indexFor(long key) {
+        return (int) Maths.hash64(key) & mask;
+    }
+
+    public long noEntryValue() {
+        return noEntryValue;
+    }
+
+    public int size() {
+        return size + (hasZeroKey ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == 0)
+            return hasZeroKey;
+        for (int i = indexFor(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key)
+                return true;
+            if (k == 0)
+                return false;
+        }
+    }
+
+    public long get(long key) {
+        if (key == 0)
+            return hasZeroKey ? zeroKeyValue : noEntryValue;
+        for (int i = indexFor(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key)
+                return values[i];
+            if (k == 0)
+                return noEntryValue;
+        }
+    }
+
+    /**
+     * @return the previous value or the noEntryValue
+     */
+    public long put(long key, long value) {
+        if (key == 0) {
+            long prev = hasZeroKey ? zeroKeyValue : noEntryValue;
+            hasZeroKey = true;
+            zeroKeyValue = value;
+            return prev;
+        }
+        int i = indexFor(key);
+        for (long k; (k = keys[i]) != 0; i = (i + 1) & mask) {
+            if (k == key) {
+                long prev = values[i];
+                values[i] = value;
+                return prev;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > resizeThreshold)
+            resize();
+        return noEntryValue;
+    }
+
+    /**
+     * Add to the value for a key, starting from 0 if absent.
+     *
+     * @return the new value
+     */
+    public long addValue(long key, long delta) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                zeroKeyValue = 0;
+            }
+            return zeroKeyValue += delta;
+        }
+        int i = indexFor(key);
+        for (long k; (k = keys[i]) != 0; i = (i + 1) & mask) {
+            if (k == key)
+                return values[i] += delta;
+        }
+        keys[i] = key;
+        values[i] = delta;
+        if (++size > resizeThreshold)
+            resize();
+        return delta;
+    }
+
+    /**
+     * @return the previous value or the noEntryValue
+     */
+    public long remove(long key) {
+        if (key == 0) {
+            long prev = hasZeroKey ? zeroKeyValue : noEntryValue;
+            hasZeroKey = false;
+            return prev;
+        }
+        for (int i = indexFor(key); keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                long prev = values[i];
+                removeAt(i);
+                return prev;
+            }
+        }
+        return noEntryValue;
+    }
+
+    // backward shift deletion so no tombstones are needed.
+    private void removeAt(int i) {
+        for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int home = indexFor(keys[j]);
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = 0;
+        size--;
+    }
+
+    public void clear() {
+        hasZeroKey = false;
+        if (size == 0)
+            return;
+        Arrays.fill(keys, 0);
+        size = 0;
+    }
+
+    public void forEach(@NotNull LongLongConsumer consumer) {
+        if (hasZeroKey)
+            consumer.accept(0, zeroKeyValue);
+        long[] keys = this.keys;
+        long[] values = this.values;
+        for (int i = 0; i < keys.length; i++) {
+            long key = keys[i];
+            if (key != 0)
+                consumer.accept(key, values[i]);
+        }
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int j = 0; j < oldKeys.length; j++) {
+            long key = oldKeys[j];
+            if (key == 0)
+                continue;
+            int i = indexFor(key);
+            while (keys[i] != 0)
+                i = (i + 1) & mask;
+            keys[i] = key;
+            values[i] = oldValues[j];
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach((k, v) -> sb.append(sb.length() > 1 ? ", " : "").append(k).append('=').append(v));
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+/**
+ * Represents an operation that accepts a {@code long}-valued and an object-valued argument, and returns no result.  This is the
+ * {@code (long, reference)} specialization of {@link java.util.function.BiConsumer}.  Unlike most other functional
+ * interfaces, {@code LongObjConsumer} is expected to operate via side-effects.
+ * <p>
+ * <p>This is a <a href="package-summary.html">functional interface</a> whose functional method is
+ * {@link #accept(long, Object)}.
+ *
+ * @see java.util.function.BiConsumer
+ */
+@FunctionalInterface
+public interface LongObjConsumer<T> {
+
+    /**
+     * Performs this operation on the given arguments.
+     *
+     * @param key   the first input argument
+     * @param value the second input argument
+     */
+    void accept(long key, T value);
+}
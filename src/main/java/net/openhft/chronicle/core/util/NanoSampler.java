@@ -21,4 +21,19 @@ package net.openhft.chronicle.core.util;
 @FunctionalInterface
 public interface NanoSampler {
     void sampleNanos(long nanos);
+
+    /**
+     * Sample a time, correcting for coordinated omission when sampling at a fixed rate. If <code>nanos</code>
+     * is more than the expected interval, the samples which would have been taken while waiting are also added.
+     *
+     * @param nanos                 time to sample
+     * @param expectedIntervalNanos between samples, or 0 for no correction.
+     */
+    default void sampleNanos(long nanos, long expectedIntervalNanos) {
+        sampleNanos(nanos);
+        if (expectedIntervalNanos <= 0)
+            return;
+        for (long missing = nanos - expectedIntervalNanos; missing >= expectedIntervalNanos; missing -= expectedIntervalNanos)
+            sampleNanos(missing);
+    }
 }
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.UnsafeMemory;
+import net.openhft.chronicle.core.io.AbstractCloseable;
+import net.openhft.chronicle.core.io.ClosedIllegalStateException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link Histogram} whose counts are held in native memory, either allocated or in a memory mapped file, so
+ * several processes can sample into the same buckets and another can read the percentiles.
+ * <p>
+ * The buckets use the same exponent and fractionBits layout as Histogram, as longs incremented atomically.
+ * The layout is a 64 byte header of
+ * <pre>
+ * int magic, int powersOf2, int fractionBits, int padding, long floor, long overRange, long underRange
+ * </pre>
+ * followed by <code>powersOf2 &lt;&lt; fractionBits</code> longs.
+ */
+public class NativeHistogram extends AbstractCloseable implements NanoSampler {
+    static final int MAGIC = 0x48495354; // HIST
+    static final int MAGIC_OFFSET = 0;
+    static final int POWERS_OF_2_OFFSET = 4;
+    static final int FRACTION_BITS_OFFSET = 8;
+    static final int FLOOR_OFFSET = 16;
+    static final int OVER_RANGE_OFFSET = 24;
+    static final int UNDER_RANGE_OFFSET = 32;
+    static final int HEADER_SIZE = 64;
+
+    private final int powersOf2;
+    private final int fractionBits;
+    private final double minValue;
+    private final long floor;
+    private final int buckets;
+    private final long size;
+    private final Runnable release;
+    private final long address;
+    private final InFlightCounter inFlight = new InFlightCounter();
+
+    private NativeHistogram(long address, long size, int powersOf2, int fractionBits, double minValue, Runnable release) {
+        this.powersOf2 = powersOf2;
+        this.fractionBits = fractionBits;
+        this.minValue = minValue;
+        this.floor = Double.doubleToRawLongBits(minValue) >> (52 - fractionBits);
+        this.buckets = powersOf2 << fractionBits;
+        this.size = size;
+        this.release = release;
+        this.address = address;
+        initHeader();
+    }
+
+    /**
+     * @return the number of bytes needed for a NativeHistogram of this shape.
+     */
+    public static long sizeFor(int powersOf2, int fractionBits) {
+        return HEADER_SIZE + ((long) (powersOf2 << fractionBits) << 3);
+    }
+
+    /**
+     * Allocate a NativeHistogram with <code>UnsafeMemory.allocate</code>, freed on close.
+     */
+    @NotNull
+    public static NativeHistogram allocate(int powersOf2, int fractionBits, double minValue) {
+        long size = sizeFor(powersOf2, fractionBits);
+        long address = UnsafeMemory.INSTANCE.allocate(size);
+        UnsafeMemory.INSTANCE.setMemory(address, size, (byte) 0);
+        return new NativeHistogram(address, size, powersOf2, fractionBits, minValue,
+                () -> UnsafeMemory.INSTANCE.freeMemory(address, size));
+    }
+
+    /**
+     * Use memory the caller manages, e.g. from <code>OS.map</code>, which must be at least
+     * {@link #sizeFor(int, int)} bytes and zeroed or already hold a histogram of the same shape.
+     */
+    @NotNull
+    public static NativeHistogram wrap(long address, int powersOf2, int fractionBits, double minValue) {
+        return new NativeHistogram(address, sizeFor(powersOf2, fractionBits), powersOf2, fractionBits, minValue, () -> {
+        });
+    }
+
+    /**
+     * Map a file as a NativeHistogram, creating it if needed. Any number of processes can map the same file.
+     */
+    @NotNull
+    public static NativeHistogram map(@NotNull File file, int powersOf2, int fractionBits, double minValue) throws IOException {
+        long size = sizeFor(powersOf2, fractionBits);
+        long address;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() < size)
+                raf.setLength(size);
+            address = OS.map(raf.getChannel(), FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        return new NativeHistogram(address, size, powersOf2, fractionBits, minValue, new OS.Unmapper(address, size));
+    }
+
+    private void initHeader() {
+        UnsafeMemory memory = UnsafeMemory.INSTANCE;
+        int magic = memory.readVolatileInt(address + MAGIC_OFFSET);
+        if (magic == 0) {
+            // concurrent initialisers write the same values.
+            memory.writeInt(address + POWERS_OF_2_OFFSET, powersOf2);
+            memory.writeInt(address + FRACTION_BITS_OFFSET, fractionBits);
+            memory.writeLong(address + FLOOR_OFFSET, floor);
+            memory.writeOrderedInt(address + MAGIC_OFFSET, MAGIC);
+
+        } else if (magic != MAGIC
+                || memory.readInt(address + POWERS_OF_2_OFFSET) != powersOf2
+                || memory.readInt(address + FRACTION_BITS_OFFSET) != fractionBits
+                || memory.readLong(address + FLOOR_OFFSET) != floor) {
+            close();
+            throw new IllegalStateException("Memory at " + Long.toHexString(address) + " does not hold a histogram with powersOf2=" + powersOf2 + ", fractionBits=" + fractionBits);
+        }
+    }
+
+    public int fractionBits() {
+        return fractionBits;
+    }
+
+    public int powersOf2() {
+        return powersOf2;
+    }
+
+    public long address() {
+        return address;
+    }
+
+    public long sizeInBytes() {
+        return size;
+    }
+
+    public int sample(double time) throws IllegalStateException {
+        int stripe = enter();
+        try {
+            return sample0(time);
+        } finally {
+            inFlight.exit(stripe);
+        }
+    }
+
+    private int sample0(double time) {
+        int bucket = bucketFor(time);
+        long offset;
+        if (bucket >= buckets)
+            offset = OVER_RANGE_OFFSET;
+        else if (bucket >= 0)
+            offset = HEADER_SIZE + ((long) bucket << 3);
+        else
+            offset = UNDER_RANGE_OFFSET;
+        UnsafeMemory.INSTANCE.addLong(address + offset, 1);
+        return bucket;
+    }
+
+    /**
+     * Sample <code>time</code> and back-fill the samples missed while it was taken, a bucket at a time, as
+     * {@link Histogram#sample(double, double)} does.
+     */
+    public int sample(double time, double expectedInterval) throws IllegalStateException {
+        int stripe = enter();
+        try {
+            int bucket = sample0(time);
+            if (expectedInterval > 0 && time >= 2 * expectedInterval)
+                backFill(time, expectedInterval);
+            return bucket;
+        } finally {
+            inFlight.exit(stripe);
+        }
+    }
+
+    private void backFill(double time, double interval) {
+        long n = (long) ((time - interval) / interval);
+        if (n <= 0)
+            return;
+        long k = 0;
+        int bucket = bucketFor(time - interval);
+        if (bucket >= buckets) {
+            k = Math.min(n, (long) ((time - bucketStart(buckets)) / interval));
+            UnsafeMemory.INSTANCE.addLong(address + OVER_RANGE_OFFSET, k);
+            bucket = buckets - 1;
+        }
+        for (; bucket >= 0 && k < n; bucket--) {
+            long kMax = Math.min(n, (long) ((time - bucketStart(bucket)) / interval));
+            if (kMax > k)
+                UnsafeMemory.INSTANCE.addLong(address + HEADER_SIZE + ((long) bucket << 3), kMax - k);
+            k = kMax;
+        }
+        if (k < n)
+            UnsafeMemory.INSTANCE.addLong(address + UNDER_RANGE_OFFSET, n - k);
+    }
+
+    private int bucketFor(double time) {
+        return (int) ((Double.doubleToRawLongBits(time) >> (52 - fractionBits)) - floor);
+    }
+
+    private double bucketStart(int bucket) {
+        return Double.longBitsToDouble((bucket + floor) << (52 - fractionBits));
+    }
+
+    // the memory can't be released until the caller exits.
+    private int enter() throws IllegalStateException {
+        int stripe = inFlight.enter();
+        if (isClosing()) {
+            inFlight.exit(stripe);
+            throwExceptionIfClosed();
+            throw new ClosedIllegalStateException(getClass().getSimpleName() + " closing");
+        }
+        return stripe;
+    }
+
+    @Override
+    public void sampleNanos(long nanos) {
+        sample(nanos);
+    }
+
+    @Override
+    public void sampleNanos(long nanos, long expectedIntervalNanos) {
+        sample(nanos, expectedIntervalNanos);
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if the bucket isn't between 0 and <code>powersOf2 &lt;&lt; fractionBits</code>
+     */
+    public long count(int bucket) throws IndexOutOfBoundsException, IllegalStateException {
+        if (bucket < 0 || bucket >= buckets)
+            throw new IndexOutOfBoundsException("bucket " + bucket + " not in [0, " + buckets + ")");
+        return readVolatile(HEADER_SIZE + ((long) bucket << 3));
+    }
+
+    public long overRange() throws IllegalStateException {
+        return readVolatile(OVER_RANGE_OFFSET);
+    }
+
+    private long readVolatile(long offset) {
+        int stripe = enter();
+        try {
+            return UnsafeMemory.INSTANCE.readVolatileLong(address + offset);
+        } finally {
+            inFlight.exit(stripe);
+        }
+    }
+
+    /**
+     * @return a new Histogram with the counts so far.
+     */
+    @NotNull
+    public Histogram snapshot() {
+        Histogram histogram = new Histogram(powersOf2, fractionBits, minValue);
+        snapshot(histogram);
+        return histogram;
+    }
+
+    /**
+     * Replace the contents of <code>histogram</code> with the counts so far. Counts are capped at Integer.MAX_VALUE.
+     * The totalCount is the sum of the counts read, so the percentiles are consistent while other processes sample.
+     *
+     * @param histogram to overwrite, which must have the same powersOf2 and fractionBits
+     */
+    public void snapshot(@NotNull Histogram histogram) throws IllegalStateException {
+        if (histogram.powersOf2() != powersOf2 || histogram.fractionBits() != fractionBits)
+            throw new IllegalArgumentException("Histogram must have powersOf2=" + powersOf2 + " fractionBits=" + fractionBits);
+        histogram.reset();
+        int[] sampleCount = histogram.sampleCount();
+        long total = 0;
+        long overRange;
+        int stripe = enter();
+        try {
+            UnsafeMemory memory = UnsafeMemory.INSTANCE;
+            for (int i = 0; i < buckets; i++) {
+                long count = memory.readVolatileLong(address + HEADER_SIZE + ((long) i << 3));
+                sampleCount[i] = (int) Math.min(Integer.MAX_VALUE, count);
+                total += sampleCount[i];
+            }
+            overRange = memory.readVolatileLong(address + OVER_RANGE_OFFSET);
+            total += overRange + memory.readVolatileLong(address + UNDER_RANGE_OFFSET);
+        } finally {
+            inFlight.exit(stripe);
+        }
+        histogram.init(powersOf2, fractionBits, overRange, total, floor);
+    }
+
+    /**
+     * Clear the counts. Samples recorded concurrently may be partially lost.
+     */
+    public void reset() throws IllegalStateException {
+        int stripe = enter();
+        try {
+            UnsafeMemory memory = UnsafeMemory.INSTANCE;
+            memory.writeOrderedLong(address + OVER_RANGE_OFFSET, 0L);
+            memory.writeOrderedLong(address + UNDER_RANGE_OFFSET, 0L);
+            for (long offset = HEADER_SIZE; offset < size; offset += 8)
+                memory.writeOrderedLong(address + offset, 0L);
+        } finally {
+            inFlight.exit(stripe);
+        }
+    }
+
+    /**
+     * Once closing, new callers throw an IllegalStateException, and the memory is released after the callers
+     * already using it return.
+     */
+    @Override
+    protected void performClose() {
+        inFlight.awaitExits();
+        release.run();
+    }
+
+    @Override
+    protected boolean threadSafetyCheck(boolean isUsed) {
+        return true;
+    }
+}
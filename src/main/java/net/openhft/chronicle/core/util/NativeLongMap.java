@@ -0,0 +1,389 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.Maths;
+import net.openhft.chronicle.core.UnsafeMemory;
+import net.openhft.chronicle.core.io.AbstractCloseable;
+import net.openhft.chronicle.core.io.ClosedIllegalStateException;
+import org.jetbrains.annotations.NotNull;
+import sun.misc.Unsafe;
+
+/**
+ * An open addressing map of <code>long</code> keys to fixed size values held in native memory allocated with
+ * <code>UnsafeMemory.allocate</code>, so large numbers of small records add nothing to the heap.
+ * <p>
+ * Readers don't lock; each entry has a version word which readers check before and after copying the value.
+ * Writers lock a stripe chosen by the key, and the entry being changed, so writers of different keys rarely contend.
+ * <p>
+ * The capacity is fixed on construction. The key 0 is reserved to mark an empty slot.
+ * Removed entries keep their slot until another key reuses it. Once closing, new calls throw an
+ * IllegalStateException, and the memory is freed in the background after the calls already in progress return.
+ */
+public class NativeLongMap extends AbstractCloseable {
+    private static final UnsafeMemory MEMORY = UnsafeMemory.INSTANCE;
+    private static final int STRIPE_SIZE = 64;
+    private static final int STRIPE_COUNT_OFFSET = 8;
+    private static final int KEY_OFFSET = 0;
+    private static final int STATE_OFFSET = 8;
+    private static final int VALUE_OFFSET = 16;
+    // state is version << 2 | PRESENT | LOCKED
+    private static final long LOCKED = 1;
+    private static final long PRESENT = 2;
+    private static final long VERSION = 4;
+
+    private final int valueLongs;
+    private final long valueSize;
+    private final long entrySize;
+    private final int capacity;
+    private final int mask;
+    private final int stripeMask;
+    private final long sizeInBytes;
+    private final long stripesAddress;
+    private final long entriesAddress;
+    private final InFlightCounter inFlight = new InFlightCounter();
+
+    /**
+     * @param entries    the maximum number of entries, the capacity is at least this / 0.75
+     * @param valueLongs the size of each value in 8-byte words.
+     */
+    public NativeLongMap(long entries, int valueLongs) {
+        this(entries, valueLongs, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public NativeLongMap(long entries, int valueLongs, int stripes) {
+        if (valueLongs < 1)
+            throw new IllegalArgumentException("valueLongs must be positive, was " + valueLongs);
+        this.valueLongs = valueLongs;
+        this.valueSize = valueLongs * 8L;
+        this.entrySize = VALUE_OFFSET + valueSize;
+        long capacity = Maths.nextPower2(entries * 4 / 3 + 1, 16);
+        if (capacity > 1 << 30)
+            throw new IllegalArgumentException("Too many entries " + entries);
+        this.capacity = (int) capacity;
+        this.mask = this.capacity - 1;
+        int stripeCount = Maths.nextPower2(stripes, 1);
+        this.stripeMask = stripeCount - 1;
+
+        long stripesSize = (long) stripeCount * STRIPE_SIZE;
+        this.sizeInBytes = stripesSize + capacity * entrySize;
+        this.stripesAddress = MEMORY.allocate(sizeInBytes);
+        MEMORY.setMemory(stripesAddress, sizeInBytes, (byte) 0);
+        this.entriesAddress = stripesAddress + stripesSize;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int valueLongs() {
+        return valueLongs;
+    }
+
+    public long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * @return the number of entries, which may be out of date if other threads are writing.
+     */
+    public long size() throws IllegalStateException {
+        int inFlightStripe = enter();
+        try {
+            long size = 0;
+            for (int s = 0; s <= stripeMask; s++)
+                size += MEMORY.readVolatileLong(stripeAddress(s) + STRIPE_COUNT_OFFSET);
+            return size;
+        } finally {
+            inFlight.exit(inFlightStripe);
+        }
+    }
+
+    private long stripeAddress(int stripe) {
+        return stripesAddress + (long) stripe * STRIPE_SIZE;
+    }
+
+    private long entryAddress(int index) {
+        return entriesAddress + index * entrySize;
+    }
+
+    private long hash(long key) {
+        return Maths.hash64(key);
+    }
+
+    public boolean containsKey(long key) throws IllegalStateException {
+        return read(key, null, 0, false);
+    }
+
+    /**
+     * Copy the value for a key to native memory.
+     *
+     * @return whether the key was found.
+     */
+    public boolean get(long key, long toAddress) throws IllegalStateException {
+        return read(key, null, toAddress, true);
+    }
+
+    /**
+     * Copy the value for a key into <code>value</code>, which must have at least valueLongs elements.
+     *
+     * @return whether the key was found.
+     */
+    public boolean get(long key, @NotNull long[] value) throws IllegalStateException {
+        checkLength(value);
+        return read(key, value, Unsafe.ARRAY_LONG_BASE_OFFSET, true);
+    }
+
+    private boolean read(long key, Object to, long toOffset, boolean copy) {
+        checkKey(key);
+        int inFlightStripe = enter();
+        try {
+            return read0(key, to, toOffset, copy);
+        } finally {
+            inFlight.exit(inFlightStripe);
+        }
+    }
+
+    private boolean read0(long key, Object to, long toOffset, boolean copy) {
+        for (int i = (int) hash(key) & mask, n = 0; n < capacity; i = (i + 1) & mask, n++) {
+            long entry = entryAddress(i);
+            long k = MEMORY.readVolatileLong(entry + KEY_OFFSET);
+            if (k == 0)
+                return false;
+            if (k != key)
+                continue;
+            for (; ; ) {
+                long state = MEMORY.readVolatileLong(entry + STATE_OFFSET);
+                if ((state & LOCKED) != 0) {
+                    Jvm.nanoPause();
+                    continue;
+                }
+                if ((state & PRESENT) != 0 && copy)
+                    MEMORY.copyMemory(entry + VALUE_OFFSET, to, toOffset, (int) valueSize);
+                MEMORY.loadFence();
+                if (MEMORY.readLong(entry + KEY_OFFSET) != key)
+                    break; // the slot was reused for another key.
+                if (MEMORY.readVolatileLong(entry + STATE_OFFSET) == state)
+                    return (state & PRESENT) != 0;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Add or replace the value for a key from native memory.
+     */
+    public void put(long key, long fromAddress) throws IllegalStateException {
+        write(key, null, fromAddress);
+    }
+
+    /**
+     * Add or replace the value for a key, which must have at least valueLongs elements.
+     */
+    public void put(long key, @NotNull long[] value) throws IllegalStateException {
+        checkLength(value);
+        write(key, value, Unsafe.ARRAY_LONG_BASE_OFFSET);
+    }
+
+    private void write(long key, Object from, long fromOffset) throws IllegalStateException {
+        checkKey(key);
+        int inFlightStripe = enter();
+        try {
+            write0(key, from, fromOffset);
+        } finally {
+            inFlight.exit(inFlightStripe);
+        }
+    }
+
+    private void write0(long key, Object from, long fromOffset) throws IllegalStateException {
+        long hash = hash(key);
+        long stripe = lockStripe(hash);
+        try {
+            for (; ; ) {
+                int removed = -1;
+                int empty = -1;
+                for (int i = (int) hash & mask, n = 0; n < capacity; i = (i + 1) & mask, n++) {
+                    long entry = entryAddress(i);
+                    long k = MEMORY.readVolatileLong(entry + KEY_OFFSET);
+                    if (k == key) {
+                        long state = lockEntry(entry);
+                        if (MEMORY.readLong(entry + KEY_OFFSET) != key) {
+                            // the slot was reused for another key.
+                            unlockEntry(entry, state, state & PRESENT);
+                            continue;
+                        }
+                        copyValue(from, fromOffset, entry);
+                        if ((state & PRESENT) == 0)
+                            MEMORY.addLong(stripe + STRIPE_COUNT_OFFSET, 1);
+                        unlockEntry(entry, state, PRESENT);
+                        return;
+                    }
+                    if (k == 0) {
+                        empty = i;
+                        break;
+                    }
+                    if (removed < 0 && isRemoved(MEMORY.readVolatileLong(entry + STATE_OFFSET)))
+                        removed = i;
+                }
+                if (removed >= 0) {
+                    if (claimRemoved(entryAddress(removed), key, from, fromOffset, stripe))
+                        return;
+                    continue;
+                }
+                if (empty < 0)
+                    throw new IllegalStateException("NativeLongMap is full, capacity: " + capacity);
+                long entry = entryAddress(empty);
+                if (MEMORY.compareAndSwapLong(entry + KEY_OFFSET, 0, key)) {
+                    long state = lockEntry(entry);
+                    copyValue(from, fromOffset, entry);
+                    MEMORY.addLong(stripe + STRIPE_COUNT_OFFSET, 1);
+                    unlockEntry(entry, state, PRESENT);
+                    return;
+                }
+                // a writer on another stripe took the slot, try again.
+            }
+        } finally {
+            MEMORY.writeOrderedLong(stripe, 0L);
+        }
+    }
+
+    // from is a long[], or null for native memory.
+    private void copyValue(Object from, long fromOffset, long entry) {
+        if (from == null) {
+            MEMORY.copyMemory(fromOffset, entry + VALUE_OFFSET, valueSize);
+        } else {
+            for (long i = 0; i < valueSize; i += 8)
+                MEMORY.writeLong(entry + VALUE_OFFSET + i, MEMORY.readLong(from, fromOffset + i));
+        }
+    }
+
+    // a new slot has a state of 0 until its first write, so it is not mistaken for a removed one.
+    private static boolean isRemoved(long state) {
+        return state != 0 && (state & (PRESENT | LOCKED)) == 0;
+    }
+
+    // reuse the removed slot of another key unless another writer got there first.
+    private boolean claimRemoved(long entry, long key, Object from, long fromOffset, long stripe) {
+        long state = lockEntry(entry);
+        if (!isRemoved(state)) {
+            unlockEntry(entry, state, state & PRESENT);
+            return false;
+        }
+        MEMORY.writeVolatileLong(entry + KEY_OFFSET, key);
+        copyValue(from, fromOffset, entry);
+        MEMORY.addLong(stripe + STRIPE_COUNT_OFFSET, 1);
+        unlockEntry(entry, state, PRESENT);
+        return true;
+    }
+
+    /**
+     * @return whether the key was present.
+     */
+    public boolean remove(long key) throws IllegalStateException {
+        checkKey(key);
+        int inFlightStripe = enter();
+        try {
+            return remove0(key);
+        } finally {
+            inFlight.exit(inFlightStripe);
+        }
+    }
+
+    private boolean remove0(long key) {
+        long hash = hash(key);
+        long stripe = lockStripe(hash);
+        try {
+            for (int i = (int) hash & mask, n = 0; n < capacity; i = (i + 1) & mask, n++) {
+                long entry = entryAddress(i);
+                long k = MEMORY.readVolatileLong(entry + KEY_OFFSET);
+                if (k == 0)
+                    return false;
+                if (k != key)
+                    continue;
+                long state = lockEntry(entry);
+                if (MEMORY.readLong(entry + KEY_OFFSET) != key) {
+                    unlockEntry(entry, state, state & PRESENT);
+                    continue;
+                }
+                unlockEntry(entry, state, 0);
+                if ((state & PRESENT) == 0)
+                    return false;
+                // the count is for the stripe of the key, not the slot.
+                MEMORY.addLong(stripe + STRIPE_COUNT_OFFSET, -1);
+                return true;
+            }
+            return false;
+        } finally {
+            MEMORY.writeOrderedLong(stripe, 0L);
+        }
+    }
+
+    private long lockStripe(long hash) {
+        long stripe = stripeAddress((int) (hash >>> 32) & stripeMask);
+        while (!MEMORY.compareAndSwapLong(stripe, 0, 1))
+            Jvm.nanoPause();
+        return stripe;
+    }
+
+    private static long lockEntry(long entry) {
+        for (; ; ) {
+            long state = MEMORY.readVolatileLong(entry + STATE_OFFSET);
+            if ((state & LOCKED) == 0 && MEMORY.compareAndSwapLong(entry + STATE_OFFSET, state, state | LOCKED))
+                return state;
+            Jvm.nanoPause();
+        }
+    }
+
+    private static void unlockEntry(long entry, long state, long present) {
+        MEMORY.writeOrderedLong(entry + STATE_OFFSET, ((state & ~(LOCKED | PRESENT)) + VERSION) | present);
+    }
+
+    private static void checkKey(long key) {
+        if (key == 0)
+            throw new IllegalArgumentException("The key 0 is reserved");
+    }
+
+    private void checkLength(long[] value) {
+        if (value.length < valueLongs)
+            throw new IllegalArgumentException("Value must have at least " + valueLongs + " longs");
+    }
+
+    // the memory can't be freed until the caller exits.
+    private int enter() throws IllegalStateException {
+        int stripe = inFlight.enter();
+        if (isClosing()) {
+            inFlight.exit(stripe);
+            throwExceptionIfClosed();
+            throw new ClosedIllegalStateException(getClass().getSimpleName() + " closing");
+        }
+        return stripe;
+    }
+
+    @Override
+    protected boolean shouldPerformCloseInBackground() {
+        return true;
+    }
+
+    @Override
+    protected void performClose() {
+        inFlight.awaitExits();
+        MEMORY.freeMemory(stripesAddress, sizeInBytes);
+    }
+}
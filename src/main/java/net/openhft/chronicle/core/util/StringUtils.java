@@ -20,6 +20,7 @@ package net.openhft.chronicle.core.util;
 
 import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.UnsafeMemory;
 import net.openhft.chronicle.core.annotation.ForceInline;
 import net.openhft.chronicle.core.annotation.Java9;
 import org.jetbrains.annotations.NotNull;
@@ -157,6 +158,50 @@ public enum StringUtils {
         }
     }
 
+    /**
+     * Compare a String with bytes of ISO-8859-1 text without decoding them.
+     */
+    public static boolean isEqual(@Nullable String s, @NotNull byte[] bytes, int offset, int length) {
+        if (s == null || s.length() != length)
+            return false;
+        if (Jvm.isJava9Plus()) {
+            if (getStringCoder(s) != 0)
+                return false;
+            byte[] value = extractBytes(s);
+            for (int i = 0; i < length; i++)
+                if (value[i] != bytes[offset + i])
+                    return false;
+        } else {
+            char[] chars = extractChars(s);
+            for (int i = 0; i < length; i++)
+                if (chars[i] != (bytes[offset + i] & 0xFF))
+                    return false;
+        }
+        return true;
+    }
+
+    /**
+     * Compare a String with ISO-8859-1 text in native memory without decoding it.
+     */
+    public static boolean isEqual(@Nullable String s, long address, int length) {
+        if (s == null || s.length() != length)
+            return false;
+        if (Jvm.isJava9Plus()) {
+            if (getStringCoder(s) != 0)
+                return false;
+            byte[] value = extractBytes(s);
+            for (int i = 0; i < length; i++)
+                if (value[i] != UnsafeMemory.UNSAFE.getByte(address + i))
+                    return false;
+        } else {
+            char[] chars = extractChars(s);
+            for (int i = 0; i < length; i++)
+                if (chars[i] != (UnsafeMemory.UNSAFE.getByte(address + i) & 0xFF))
+                    return false;
+        }
+        return true;
+    }
+
     @ForceInline
     public static boolean equalsCaseIgnore(@Nullable CharSequence s, @NotNull CharSequence cs) {
         if (s == null) return false;
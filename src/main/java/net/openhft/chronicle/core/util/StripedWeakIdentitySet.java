@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import net.openhft.chronicle.core.Maths;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A concurrent Set which compares by identity and doesn't prevent its elements being garbage collected.
+ * <p>
+ * Elements are spread over stripes of {@link WeakIdentityHashMap} by identity hash code, so threads adding and
+ * removing different elements rarely touch the same map or reference queue. Iteration is weakly consistent and
+ * doesn't lock.
+ */
+public class StripedWeakIdentitySet<E> extends AbstractSet<E> {
+    private final WeakIdentityHashMap<E, Boolean>[] stripes;
+    private final int mask;
+
+    public StripedWeakIdentitySet() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    @SuppressWarnings("unchecked")
+    public StripedWeakIdentitySet(int stripes) {
+        int n = Maths.nextPower2(stripes, 1);
+        this.stripes = new WeakIdentityHashMap[n];
+        for (int i = 0; i < n; i++)
+            this.stripes[i] = new WeakIdentityHashMap<>();
+        mask = n - 1;
+    }
+
+    private WeakIdentityHashMap<E, Boolean> stripeFor(Object o) {
+        int h = System.identityHashCode(o);
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+
+    @Override
+    public boolean add(E e) {
+        return stripeFor(e).put(e, Boolean.TRUE) == null;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return stripeFor(o).remove(o) != null;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return stripeFor(o).get(o) != null;
+    }
+
+    @Override
+    public void clear() {
+        for (WeakIdentityHashMap<E, Boolean> stripe : stripes)
+            stripe.clear();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (WeakIdentityHashMap<E, Boolean> stripe : stripes)
+            if (!stripe.isEmpty())
+                return false;
+        return true;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (WeakIdentityHashMap<E, Boolean> stripe : stripes)
+            size += stripe.size();
+        return size;
+    }
+
+    @NotNull
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            int stripe = 0;
+            Iterator<E> iterator = stripes[0].keySet().iterator();
+            // the keySet iterator's hasNext() moves past the next element, so it is only called once per element.
+            E next;
+
+            @Override
+            public boolean hasNext() {
+                if (next != null)
+                    return true;
+                for (; ; ) {
+                    if (iterator.hasNext()) {
+                        next = iterator.next();
+                        return true;
+                    }
+                    if (++stripe >= stripes.length)
+                        return false;
+                    iterator = stripes[stripe].keySet().iterator();
+                }
+            }
+
+            @Override
+            public E next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                E e = next;
+                next = null;
+                return e;
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+            }
+        };
+    }
+}
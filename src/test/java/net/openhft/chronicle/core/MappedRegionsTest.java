@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core;
+
+import net.openhft.chronicle.core.io.IOTools;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+
+import static org.junit.Assert.*;
+
+public class MappedRegionsTest {
+
+    @Rule
+    public final TestName testName = new TestName();
+
+    @Test
+    public void registersMappings() throws Exception {
+        File file = IOTools.createTempFile(getClass().getName() + "." + testName.getMethodName());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long size = 256 << 10;
+            raf.setLength(size * 2);
+            long total = MappedRegions.totalSize();
+            long address = OS.map(raf.getChannel(), FileChannel.MapMode.READ_WRITE, 0, size);
+            long address2 = OS.map(raf.getChannel(), FileChannel.MapMode.READ_WRITE, size, size);
+
+            MappedRegion region = MappedRegions.snapshot().stream()
+                    .filter(r -> r.address() == address)
+                    .findFirst()
+                    .orElseThrow(AssertionError::new);
+            assertEquals(size, region.size());
+            assertEquals(file.getPath(), region.file());
+            assertEquals(Thread.currentThread().getName(), region.threadName());
+            assertEquals(Jvm.isResourceTracing(), region.createdHere() != null);
+            assertEquals(total + 2 * size, MappedRegions.totalSize());
+            assertEquals(2 * size, (long) MappedRegions.sizeByFile().get(file.getPath()));
+            assertTrue(MappedRegions.olderThan(0).contains(region));
+
+            try {
+                MappedRegions.assertMappingsUnmapped();
+                fail();
+            } catch (AssertionError expected) {
+                assertTrue(expected.getSuppressed().length >= 2);
+            }
+
+            OS.unmap(address, size);
+            new OS.Unmapper(address2, size).run();
+            assertFalse(MappedRegions.sizeByFile().containsKey(file.getPath()));
+            assertEquals(total, MappedRegions.totalSize());
+        }
+        file.delete();
+    }
+
+    @Test
+    public void mbean() throws Exception {
+        MappedRegions.registerMBean();
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("chronicle:type=memory,name=mappings");
+            assertEquals(MappedRegions.count(), mbs.getAttribute(name, "MappingCount"));
+            assertEquals(MappedRegions.totalSize(), mbs.getAttribute(name, "MappedBytes"));
+            assertEquals(MappedRegions.count(), ((String[]) mbs.getAttribute(name, "Regions")).length);
+        } finally {
+            MappedRegions.unregisterMBean();
+        }
+    }
+}
@@ -18,6 +18,7 @@
 
 package net.openhft.chronicle.core;
 
+import net.openhft.chronicle.core.internal.PosixMemory;
 import net.openhft.chronicle.core.io.IOTools;
 import net.openhft.chronicle.core.threads.ThreadDump;
 import org.junit.After;
@@ -36,8 +37,11 @@ import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
 public class OSTest {
 
@@ -153,4 +157,78 @@ public class OSTest {
         }
     }
 
+    @Test
+    public void mapWithOptions() throws IOException {
+        File file = IOTools.createTempFile(getClass().getName() + "." + testName.getMethodName());
+
+        try (RandomAccessFile rw = new RandomAccessFile(file, "rw")) {
+            FileChannel fc = rw.getChannel();
+            long length = 4L << 20;
+            rw.setLength(length);
+
+            long address = OS.map(fc, MapMode.READ_WRITE, 0, length,
+                    MapOption.PREFAULT, MapOption.SEQUENTIAL, MapOption.HUGE_PAGES, MapOption.LOCK);
+            for (long offset = 0; offset < length; offset += OS.pageSize())
+                OS.memory().writeLong(address + offset, offset);
+            for (long offset = 0; offset < length; offset += OS.pageSize())
+                assertEquals(offset, OS.memory().readLong(address + offset));
+            OS.madvise(address, length, MemoryAdvice.DONTNEED);
+            // file backed pages are reread from the file.
+            assertEquals(OS.pageSize(), OS.memory().readLong(address + OS.pageSize()));
+            OS.unmap(address, OS.hugePageAlign(length));
+        }
+    }
+
+    @Test
+    public void prefaultKeepsConcurrentWrites() throws IOException, InterruptedException {
+        File file = IOTools.createTempFile(getClass().getName() + "." + testName.getMethodName());
+
+        try (RandomAccessFile rw = new RandomAccessFile(file, "rw")) {
+            long length = 4L << 20;
+            rw.setLength(length);
+            long address = OS.map(rw.getChannel(), MapMode.READ_WRITE, 0, length);
+            // another thread keeps incrementing the first int of each page while the pages are touched.
+            AtomicBoolean running = new AtomicBoolean(true);
+            int[] increments = new int[(int) (length / OS.pageSize())];
+            Thread writer = new Thread(() -> {
+                while (running.get())
+                    for (int i = 0; i < increments.length; i++) {
+                        OS.memory().addInt(address + (long) i * OS.pageSize(), 1);
+                        increments[i]++;
+                    }
+            });
+            writer.start();
+            for (int i = 0; i < 20; i++) {
+                OS.touchPages(address, length, true);
+                OS.prefault(address, length, true);
+                OS.prefault(address, length, false);
+            }
+            running.set(false);
+            writer.join();
+            for (int i = 0; i < increments.length; i++)
+                assertEquals(increments[i], OS.memory().readInt(address + (long) i * OS.pageSize()));
+            OS.unmap(address, length);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mapHugePagesUnaligned() throws IOException {
+        assumeTrue(OS.hugePageSize() > OS.pageSize());
+        File file = IOTools.createTempFile(getClass().getName() + "." + testName.getMethodName());
+        try (RandomAccessFile rw = new RandomAccessFile(file, "rw")) {
+            OS.map(rw.getChannel(), MapMode.READ_WRITE, OS.pageSize(), OS.pageSize(), MapOption.HUGE_PAGES);
+        }
+    }
+
+    @Test
+    public void allocateHugePages() {
+        long used = OS.memory().nativeMemoryUsed();
+        long capacity = 3 << 20;
+        long address = UnsafeMemory.INSTANCE.allocateHugePages(capacity, false);
+        OS.memory().setMemory(address, capacity, (byte) 1);
+        assertEquals(0x0101010101010101L, OS.memory().readLong(address + capacity - 8));
+        assertTrue(OS.madvise(address, capacity, MemoryAdvice.RANDOM) || !PosixMemory.isAvailable());
+        UnsafeMemory.INSTANCE.freeHugePages(address, capacity);
+        assertEquals(used, OS.memory().nativeMemoryUsed());
+    }
 }
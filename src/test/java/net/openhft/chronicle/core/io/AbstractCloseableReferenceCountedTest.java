@@ -77,6 +77,29 @@ public class AbstractCloseableReferenceCountedTest extends CoreTestCommon {
         }
     }
 
+    @Test
+    public void untracedHaveNoStackTraces() {
+        AbstractCloseable.enableSampledCloseableTracing(1, c -> false);
+        try {
+            MyCloseableReferenceCounted rc = new MyCloseableReferenceCounted();
+            assertNull(rc.createdHere());
+            rc.reserve(ReferenceOwner.INIT);
+            assertEquals(2, rc.refCount());
+            rc.close();
+            assertEquals(1, rc.refCount());
+            rc.release(ReferenceOwner.INIT);
+            assertEquals(0, rc.refCount());
+            assertEquals(1, rc.performRelease);
+        } finally {
+            AbstractCloseable.enableCloseableTracing();
+        }
+        if (Jvm.isResourceTracing()) {
+            MyCloseableReferenceCounted traced = new MyCloseableReferenceCounted();
+            assertNotNull(traced.createdHere());
+            traced.close();
+        }
+    }
+
     static class MyCloseableReferenceCounted extends AbstractCloseableReferenceCounted {
         int performRelease;
 
@@ -5,7 +5,8 @@ import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.core.onoes.ExceptionKey;
 import org.junit.Test;
 
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
@@ -58,6 +59,58 @@ public class AbstractCloseableTest extends CoreTestCommon {
                         .collect(Collectors.joining(", ")));
     }
 
+    @Test
+    public void sampledTracing() {
+        AbstractCloseable.enableSampledCloseableTracing(4, null);
+        try {
+            List<MyCloseable> closeables = new ArrayList<>();
+            for (int i = 0; i < 4000; i++)
+                closeables.add(new MyCloseable());
+            int traced = AbstractCloseable.openCloseablesByClass().get(MyCloseable.class.getName());
+            assertEquals(1000, traced, 200);
+            if (Jvm.isResourceTracing())
+                assertEquals(traced, closeables.stream().filter(c -> c.createdHere() != null).count());
+            closeables.forEach(Closeable::close);
+            assertNull(AbstractCloseable.openCloseablesByClass().get(MyCloseable.class.getName()));
+        } finally {
+            AbstractCloseable.enableCloseableTracing();
+        }
+    }
+
+    @Test
+    public void tracingByClass() {
+        AbstractCloseable.enableSampledCloseableTracing(1, AbstractCloseable.tracedClasses("java., " + MyCloseable.class.getName()));
+        try {
+            MyCloseable mc = new MyCloseable();
+            Closeable other = new AbstractCloseable() {
+                @Override
+                protected void performClose() {
+                }
+            };
+            assertEquals(Collections.singletonMap(MyCloseable.class.getName(), 1), AbstractCloseable.openCloseablesByClass());
+            mc.close();
+            other.close();
+        } finally {
+            AbstractCloseable.enableCloseableTracing();
+        }
+    }
+
+    @Test
+    public void leakReport() {
+        Map<String, Integer> previous = new LinkedHashMap<>();
+        previous.put("A", 5);
+        previous.put("B", 2);
+        Map<String, Integer> current = new LinkedHashMap<>();
+        current.put("A", 7);
+        current.put("B", 2);
+        assertEquals("Open closeables (tracing 1 in 10): A=7 (+2), B=2",
+                CloseableLeakReporter.report(previous, current, 10));
+        assertNull(CloseableLeakReporter.report(current, current, 1));
+
+        AbstractCloseable.startLeakReport(10, TimeUnit.MILLISECONDS);
+        AbstractCloseable.stopLeakReport();
+    }
+
     static class MyCloseable extends AbstractCloseable {
         int performClose;
 
@@ -2,8 +2,10 @@ package net.openhft.chronicle.core.io;
 
 import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.onoes.ExceptionKey;
 import org.junit.Test;
 
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.Assert.*;
@@ -49,6 +51,47 @@ public class BackgroundResourceReleaserTest {
         AbstractCloseable.assertCloseablesClosed();
     }
 
+    @Test
+    public void metrics() {
+        assumeTrue(BackgroundResourceReleaser.BG_RELEASER);
+        BackgroundResourceReleaser.releasePendingResources();
+        BackgroundResourceReleaser.resetStats();
+        AtomicLong ran = new AtomicLong();
+        for (int i = 0; i < 100; i++)
+            BackgroundResourceReleaser.run(() -> {
+                ran.incrementAndGet();
+                Jvm.pause(1);
+            });
+        assertTrue(BackgroundResourceReleaser.maxQueueDepth() > 1);
+        BackgroundResourceReleaser.releasePendingResources();
+        assertEquals(100, ran.get());
+        assertEquals(0, BackgroundResourceReleaser.queueDepth());
+        assertEquals(100, BackgroundResourceReleaser.releasedCount());
+        assertEquals(0, BackgroundResourceReleaser.synchronousReleaseCount());
+        assertEquals(100, BackgroundResourceReleaser.releaseLatency().totalCount());
+        assertTrue(BackgroundResourceReleaser.releaseLatency().percentile(0.5) >= 900_000);
+    }
+
+    @Test
+    public void noSlowCloseWarningOnAnyReleaserThread() throws InterruptedException {
+        Map<ExceptionKey, Integer> map = Jvm.recordExceptions(true);
+        try {
+            for (String name : new String[]{BackgroundResourceReleaser.BACKGROUND_RESOURCE_RELEASER + "~1", "user-thread"}) {
+                WaitingCloseable slow = new WaitingCloseable(30);
+                Thread thread = new Thread(slow::close, name);
+                thread.start();
+                thread.join();
+                assertTrue(slow.isClosed());
+            }
+        } finally {
+            Jvm.resetExceptionHandlers();
+        }
+        // only the close on the user thread warns
+        assertEquals(1, map.keySet().stream()
+                .filter(k -> k.message.startsWith("Took"))
+                .count());
+    }
+
     static class BGCloseable extends AbstractCloseable {
         @Override
         protected boolean shouldPerformCloseInBackground() {
@@ -63,6 +106,16 @@ public class BackgroundResourceReleaserTest {
     }
 
     static class WaitingCloseable extends AbstractCloseable {
+        private final int pauseMS;
+
+        WaitingCloseable() {
+            this(10);
+        }
+
+        WaitingCloseable(int pauseMS) {
+            this.pauseMS = pauseMS;
+        }
+
         @Override
         protected boolean shouldWaitForClosed() {
             return true;
@@ -70,7 +123,7 @@ public class BackgroundResourceReleaserTest {
 
         @Override
         protected void performClose() {
-            Jvm.pause(10);
+            Jvm.pause(pauseMS);
         }
     }
 
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.io;
+
+import net.openhft.chronicle.core.OS;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+
+import java.io.File;
+import java.io.IOException;
+
+import static net.openhft.chronicle.core.UnsafeMemory.UNSAFE;
+import static org.junit.Assert.*;
+
+public class MappedChunkServiceTest {
+
+    @Rule
+    public final TestName testName = new TestName();
+
+    @Test
+    public void mapsAhead() throws IOException {
+        File file = IOTools.createTempFile(getClass().getName() + "." + testName.getMethodName());
+        long mapped = OS.memoryMapped();
+        try (MappedChunkService service = new MappedChunkService(file, 1 << 20, 2, true)) {
+            long chunkSize = service.chunkSize();
+            long address0 = service.acquire(0);
+            assertNotEquals(0, address0);
+            UNSAFE.putLong(address0, 123L);
+
+            // chunks 1 and 2 are mapped in the background.
+            long address1;
+            while ((address1 = service.tryAcquire(1)) == 0)
+                Thread.yield();
+            while (service.mappedAheadCount() < 2)
+                Thread.yield();
+            assertTrue(file.length() >= 3 * chunkSize);
+            UNSAFE.putLong(address1 + chunkSize - 8, 456L);
+            service.release(0);
+
+            assertEquals(456L, UNSAFE.getLong(service.acquire(1) + chunkSize - 8));
+            assertTrue(service.mapLatency().totalCount() >= 3);
+            assertNotEquals(0, service.acquire(2));
+
+            // reacquire a released chunk.
+            assertEquals(123L, UNSAFE.getLong(service.acquire(0)));
+        }
+        BackgroundResourceReleaser.releasePendingResources();
+        assertEquals(mapped, OS.memoryMapped());
+        file.delete();
+    }
+
+    @Test
+    public void tryAcquireDoesntBlock() throws IOException {
+        File file = IOTools.createTempFile(getClass().getName() + "." + testName.getMethodName());
+        try (MappedChunkService service = new MappedChunkService(file, 1 << 16, 0, false)) {
+            long address = service.tryAcquire(5);
+            while (address == 0) {
+                // polling doesn't queue the chunk again.
+                assertTrue(service.pendingRequests() <= 2);
+                Thread.yield();
+                address = service.tryAcquire(5);
+            }
+            assertEquals(address, service.acquire(5));
+            assertEquals(0, service.stallCount());
+            assertTrue(file.length() >= 6 * service.chunkSize());
+        }
+        file.delete();
+    }
+
+    @Test
+    public void releasedChunksAreNotMappedAgain() throws IOException {
+        File file = IOTools.createTempFile(getClass().getName() + "." + testName.getMethodName());
+        try (MappedChunkService service = new MappedChunkService(file, 1 << 16, 8, false)) {
+            service.acquire(0);
+            for (int i = 1; i <= 8; i++)
+                service.release(i);
+            while (service.pendingRequests() > 0)
+                Thread.yield();
+            for (int i = 1; i <= 8; i++)
+                assertFalse(service.isMapped(i));
+            // unless acquired again
+            assertNotEquals(0, service.acquire(3));
+        }
+        file.delete();
+    }
+
+    @Test
+    public void concurrentAcquiresRequestAhead() throws IOException, InterruptedException {
+        File file = IOTools.createTempFile(getClass().getName() + "." + testName.getMethodName());
+        try (MappedChunkService service = new MappedChunkService(file, 1 << 16, 2, false)) {
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                int chunk = t * 3;
+                threads[t] = new Thread(() -> service.tryAcquire(chunk));
+            }
+            for (Thread thread : threads)
+                thread.start();
+            for (Thread thread : threads)
+                thread.join();
+            // each chunk tried and the chunks ahead of the highest are mapped, whichever thread won.
+            for (int i = 0; i <= 11; i++)
+                while ((i % 3 == 0 || i > 9) && !service.isMapped(i))
+                    Thread.yield();
+            assertEquals(0, service.stallCount());
+        }
+        file.delete();
+    }
+
+    @Test
+    public void releaseAndCloseUnmapOnce() throws IOException {
+        File file = IOTools.createTempFile(getClass().getName() + "." + testName.getMethodName());
+        BackgroundResourceReleaser.releasePendingResources();
+        long mapped = OS.memoryMapped();
+        try (MappedChunkService service = new MappedChunkService(file, 1 << 16, 0, false)) {
+            for (int i = 0; i < 8; i++)
+                service.acquire(i);
+            for (int i = 0; i < 8; i++)
+                service.release(i);
+        }
+        BackgroundResourceReleaser.releasePendingResources();
+        assertEquals(mapped, OS.memoryMapped());
+        file.delete();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidChunkSize() throws IOException {
+        new MappedChunkService(IOTools.createTempFile(testName.getMethodName()), 0, 1, false);
+    }
+}
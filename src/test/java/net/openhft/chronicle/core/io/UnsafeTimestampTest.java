@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.io;
+
+import net.openhft.chronicle.core.UnsafeMemory;
+import org.junit.Test;
+import sun.misc.Unsafe;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class UnsafeTimestampTest {
+    static String format(long time) {
+        byte[] bytes = new byte[UnsafeTimestamp.MAX_LENGTH];
+        int length = UnsafeTimestamp.appendTimestamp(bytes, 0, time);
+        assertEquals(UnsafeTimestamp.length(time), length);
+        return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    public void formatUnits() {
+        assertEquals("2020-09-28T12:34:56", format(1601296496L));
+        assertEquals("2020-09-28T12:34:56.123", format(1601296496_123L));
+        assertEquals("2020-09-28T12:34:56.000123", format(1601296496_000123L));
+        assertEquals("2020-09-28T12:34:56.012345678", format(1601296496_012345678L));
+        assertEquals("2000-02-29T00:00:00.000", format(951782400_000L));
+        assertEquals("2262-04-11T23:47:16.854775807", format(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void matchesInstant() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            long nanos = (random.nextLong() >>> 1) % (290L * 365 * 86400 * 1_000_000_000L);
+            if (nanos < 1_000_000_000_000_000_000L)
+                nanos += 1_000_000_000_000_000_000L;
+            String text = format(nanos);
+            Instant instant = Instant.ofEpochSecond(0, nanos);
+            String expected = instant.toString();
+            assertEquals(expected.substring(0, expected.length() - 1), trim(text));
+            byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+            assertEquals(nanos, UnsafeTimestamp.parseTimestamp(bytes, 0, bytes.length));
+        }
+    }
+
+    // Instant.toString() drops trailing zeros in groups of three
+    static String trim(String text) {
+        while (text.endsWith("000"))
+            text = text.substring(0, text.length() - 3);
+        return text.endsWith(".") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    @Test
+    public void parse() {
+        byte[] bytes = "2020-09-28T12:34:56.5Z".getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals(Instant.parse("2020-09-28T12:34:56.5Z").toEpochMilli() * 1_000_000L,
+                UnsafeTimestamp.parseTimestamp(bytes, 0, bytes.length));
+        bytes = "1970-01-01T00:00:01".getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals(1_000_000_000L, UnsafeTimestamp.parseTimestamp(bytes, 0, bytes.length));
+
+        for (String bad : new String[]{"2020-09-28 12:34:56", "2020-09-28T12:34", "2020-13-28T12:34:56", "2020-09-28T12:34:56.", "2020-09-28T12:3x:56"}) {
+            byte[] b = bad.getBytes(StandardCharsets.ISO_8859_1);
+            try {
+                UnsafeTimestamp.parseTimestamp(b, 0, b.length);
+                fail(bad);
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void nativeMemory() {
+        long address = UnsafeMemory.INSTANCE.allocate(64);
+        try {
+            long time = 1601296496_123456L;
+            long end = UnsafeTimestamp.appendTimestamp(address, time);
+            assertEquals(26, end - address);
+            byte[] bytes = new byte[26];
+            UnsafeMemory.UNSAFE.copyMemory(null, address, bytes, Unsafe.ARRAY_BYTE_BASE_OFFSET, 26);
+            assertEquals("2020-09-28T12:34:56.123456", new String(bytes, StandardCharsets.ISO_8859_1));
+            assertEquals(time * 1000, UnsafeTimestamp.parseTimestamp(address, 26));
+        } finally {
+            UnsafeMemory.INSTANCE.freeMemory(address, 64);
+        }
+    }
+}
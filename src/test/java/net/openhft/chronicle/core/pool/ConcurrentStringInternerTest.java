@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.pool;
+
+import net.openhft.chronicle.core.UnsafeMemory;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentStringInternerTest {
+
+    @Test
+    public void stats() {
+        ConcurrentStringInterner si = new ConcurrentStringInterner(128);
+        StringBuilder sb = new StringBuilder("hello");
+        String hello = si.intern(sb);
+        assertEquals("hello", hello);
+        assertSame(hello, si.intern(sb));
+        assertSame(hello, si.intern("hello"));
+        assertEquals(2, si.hits());
+        assertEquals(1, si.misses());
+        assertEquals(0, si.evictions());
+
+        for (int i = 0; i < 1000; i++)
+            si.intern("" + i);
+        assertTrue(si.evictions() > 0);
+        assertEquals(1001, si.misses());
+        si.resetStats();
+        assertEquals(0, si.misses());
+    }
+
+    @Test
+    public void manyThreads() throws InterruptedException {
+        ConcurrentStringInterner si = new ConcurrentStringInterner(4096);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            threads.add(new Thread(() -> {
+                StringBuilder sb = new StringBuilder();
+                try {
+                    for (int i = 0; i < 100_000; i++) {
+                        sb.setLength(0);
+                        sb.append("field-").append(i % 256);
+                        String s = si.intern(sb);
+                        if (!s.contentEquals(sb))
+                            throw new AssertionError(s + " != " + sb);
+                    }
+                } catch (Throwable e) {
+                    error.set(e);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads)
+            thread.join();
+        assertNull(error.get());
+        assertTrue("hitRate: " + si.hitRate(), si.hitRate() > 0.99);
+    }
+
+    @Test
+    public void internLatin1MatchesString() {
+        ConcurrentStringInterner si = new ConcurrentStringInterner(128);
+        String cafe = si.intern("caf\u00e9 cr\u00e8me");
+        byte[] bytes = cafe.getBytes(StandardCharsets.ISO_8859_1);
+        assertSame(cafe, si.intern(bytes, 0, bytes.length));
+        long address = UnsafeMemory.INSTANCE.allocate(bytes.length);
+        try {
+            UnsafeMemory.INSTANCE.writeBytes(address, bytes, 0, bytes.length);
+            assertSame(cafe, si.intern(address, bytes.length));
+        } finally {
+            UnsafeMemory.INSTANCE.freeMemory(address, bytes.length);
+        }
+        assertEquals(2, si.hits());
+    }
+}
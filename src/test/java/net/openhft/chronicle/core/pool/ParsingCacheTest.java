@@ -18,11 +18,16 @@
 
 package net.openhft.chronicle.core.pool;
 
+import net.openhft.chronicle.core.UnsafeMemory;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.junit.Test;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 
@@ -37,4 +42,120 @@ public class ParsingCacheTest {
         assertSame(bd1, bd1b);
         assertEquals(2, pc.valueCount());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void internBytes() {
+        @NotNull ParsingCache<BigDecimal> pc = new ParsingCache<>(128, BigDecimal::new);
+        @Nullable BigDecimal bd1 = pc.intern("1.234");
+        byte[] bytes = "x=1.234".getBytes(StandardCharsets.ISO_8859_1);
+        assertSame(bd1, pc.intern(bytes, 2, 5));
+        assertEquals(new BigDecimal("1.2"), pc.intern(bytes, 2, 3));
+        assertEquals(2, pc.valueCount());
+    }
+
+    @Test
+    public void growsWhenThrashing() {
+        AtomicInteger parsed = new AtomicInteger();
+        @NotNull ParsingCache<BigDecimal> pc = new ParsingCache<>(128, 4096, s -> {
+            parsed.incrementAndGet();
+            return new BigDecimal(s);
+        });
+        for (int j = 0; j < 20; j++)
+            for (int i = 0; i < 1000; i++)
+                pc.intern("1." + i);
+        assertEquals(2048, pc.capacity());
+        assertTrue(pc.evictions() > 0);
+        assertEquals(parsed.get(), pc.misses());
+        assertEquals(20_000, pc.hits() + pc.misses());
+
+        pc.resetStats();
+        for (int i = 0; i < 1000; i++)
+            pc.intern("1." + i);
+        assertTrue("hits: " + pc.hits(), pc.hits() > 900);
+    }
+
+    @Test
+    public void fixedCapacityKeepsHotEntries() {
+        @NotNull ParsingCache<BigDecimal> pc = new ParsingCache<>(128, 128, BigDecimal::new);
+        for (int i = 0; i < 10_000; i++) {
+            pc.intern("0.5");
+            pc.intern("1." + i);
+        }
+        assertEquals(128, pc.capacity());
+        assertEquals(9_999, pc.hits());
+    }
+
+    @Test
+    public void secondChanceIsOnlyOnce() {
+        @NotNull ParsingCache<BigDecimal> pc = new ParsingCache<>(128, 128, BigDecimal::new);
+        BigDecimal bd = pc.intern("0.5");
+        assertSame(bd, pc.intern("0.5"));
+        // hit once and never again, so it is eventually evicted.
+        for (int i = 0; i < 10_000; i++)
+            pc.intern("1." + i);
+        long misses = pc.misses();
+        pc.intern("0.5");
+        assertEquals(misses + 1, pc.misses());
+    }
+
+    @Test
+    public void hitsNotRecordedWithoutMaxCapacity() {
+        @NotNull ParsingCache<BigDecimal> pc = new ParsingCache<>(128, BigDecimal::new);
+        BigDecimal bd = pc.intern("0.5");
+        assertSame(bd, pc.intern("0.5"));
+        assertEquals(0, pc.hits());
+        assertEquals(1, pc.misses());
+    }
+
+    @Test
+    public void readerWhileGrowing() throws InterruptedException {
+        @NotNull ParsingCache<String> pc = new ParsingCache<>(128, 1 << 16, s -> s);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread reader = new Thread(() -> {
+            try {
+                byte[] bytes = "1.0".getBytes(StandardCharsets.ISO_8859_1);
+                while (running.get())
+                    pc.intern(bytes, 0, bytes.length);
+            } catch (Throwable t) {
+                error.set(t);
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 100_000; i++)
+            pc.intern("2." + i);
+        running.set(false);
+        reader.join();
+        assertNull(error.get());
+        assertTrue(pc.capacity() > 128);
+    }
+
+    @Test
+    public void internLatin1MatchesString() {
+        @NotNull ParsingCache<String> pc = new ParsingCache<>(128, String::toUpperCase);
+        String cafe = pc.intern("caf\u00e9 cr\u00e8me");
+        assertEquals("CAF\u00c9 CR\u00c8ME", cafe);
+        byte[] bytes = "caf\u00e9 cr\u00e8me".getBytes(StandardCharsets.ISO_8859_1);
+        assertSame(cafe, pc.intern(bytes, 0, bytes.length));
+        long address = UnsafeMemory.INSTANCE.allocate(bytes.length);
+        try {
+            UnsafeMemory.INSTANCE.writeBytes(address, bytes, 0, bytes.length);
+            assertSame(cafe, pc.intern(address, bytes.length));
+        } finally {
+            UnsafeMemory.INSTANCE.freeMemory(address, bytes.length);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void deprecatedFieldsFollowTheTable() {
+        @NotNull ParsingCache<BigDecimal> pc = new ParsingCache<BigDecimal>(128, 4096, BigDecimal::new) {
+        };
+        for (int j = 0; j < 20; j++)
+            for (int i = 0; i < 1000; i++)
+                pc.intern("1." + i);
+        assertEquals(pc.capacity(), pc.interner.length);
+        assertEquals(pc.capacity() - 1, pc.mask);
+        assertEquals(Integer.numberOfTrailingZeros(pc.capacity()), pc.shift);
+    }
+}
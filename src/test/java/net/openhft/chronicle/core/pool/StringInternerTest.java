@@ -18,10 +18,14 @@
 
 package net.openhft.chronicle.core.pool;
 
+import net.openhft.chronicle.core.UnsafeMemory;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 public class StringInternerTest {
     @Test
@@ -32,4 +36,49 @@ public class StringInternerTest {
         }
         assertEquals(82, si.valueCount());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void internBytes() {
+        @NotNull StringInterner si = new StringInterner(128);
+        String hello = si.intern("hello");
+        byte[] bytes = "say hello!".getBytes(StandardCharsets.ISO_8859_1);
+        assertSame(hello, si.intern(bytes, 4, 5));
+
+        String world = si.intern(bytes, 0, 3);
+        assertEquals("say", world);
+        assertSame(world, si.intern("say"));
+        assertEquals("\u00e9t\u00e9", si.intern(new byte[]{(byte) 0xe9, 't', (byte) 0xe9}, 0, 3));
+    }
+
+    @Test
+    public void internAddress() {
+        @NotNull StringInterner si = new StringInterner(128);
+        String hello = si.intern("hello");
+        long address = UnsafeMemory.INSTANCE.allocate(16);
+        try {
+            byte[] bytes = "hello".getBytes(StandardCharsets.ISO_8859_1);
+            UnsafeMemory.INSTANCE.writeBytes(address, bytes, 0, bytes.length);
+            assertSame(hello, si.intern(address, 5));
+            String hell = si.intern(address, 4);
+            assertEquals("hell", hell);
+            assertEquals(hell, new ConcurrentStringInterner(128).intern(address, 4));
+        } finally {
+            UnsafeMemory.INSTANCE.freeMemory(address, 16);
+        }
+    }
+
+    @Test
+    public void internLatin1MatchesString() {
+        @NotNull StringInterner si = new StringInterner(128);
+        String cafe = si.intern("caf\u00e9 cr\u00e8me");
+        byte[] bytes = cafe.getBytes(StandardCharsets.ISO_8859_1);
+        assertSame(cafe, si.intern(bytes, 0, bytes.length));
+        long address = UnsafeMemory.INSTANCE.allocate(bytes.length);
+        try {
+            UnsafeMemory.INSTANCE.writeBytes(address, bytes, 0, bytes.length);
+            assertSame(cafe, si.intern(address, bytes.length));
+        } finally {
+            UnsafeMemory.INSTANCE.freeMemory(address, bytes.length);
+        }
+    }
+}
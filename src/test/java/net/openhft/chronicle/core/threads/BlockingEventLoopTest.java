@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+import net.openhft.chronicle.core.Jvm;
+import org.junit.Test;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BlockingEventLoopTest {
+    @Test
+    public void lifecycle() throws InterruptedException {
+        BlockingQueue<String> queue = new ArrayBlockingQueue<>(10);
+        AtomicInteger actions = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(2);
+        BlockingEventLoop el = new BlockingEventLoop("test", 4);
+        assertEquals(Jvm.majorVersion() >= 21, el.isVirtual());
+        Thread[] threads = new Thread[2];
+        el.addHandler(new EventHandler() {
+            @Override
+            public void loopStarted() {
+                threads[0] = Thread.currentThread();
+            }
+
+            @Override
+            public boolean action() throws InvalidEventHandlerException, InterruptedException {
+                // blocks until there is something to do
+                String s = queue.take();
+                actions.incrementAndGet();
+                if (s.equals("end"))
+                    throw new InvalidEventHandlerException();
+                return true;
+            }
+
+            @Override
+            public void loopFinished() {
+                assertSame(threads[0], Thread.currentThread());
+                finished.countDown();
+            }
+
+            @Override
+            public HandlerPriority priority() {
+                return HandlerPriority.BLOCKING;
+            }
+        });
+        el.addHandler(new EventHandler() {
+            @Override
+            public boolean action() throws InterruptedException {
+                Thread.sleep(60_000);
+                return false;
+            }
+
+            @Override
+            public void loopFinished() {
+                finished.countDown();
+            }
+        });
+        assertFalse(el.isAlive());
+        el.start();
+        assertTrue(el.isAlive());
+        queue.add("a");
+        queue.add("b");
+        queue.add("end");
+        long end = System.currentTimeMillis() + 5000;
+        while (finished.getCount() > 1 && System.currentTimeMillis() < end)
+            Jvm.pause(1);
+        assertEquals(3, actions.get());
+        assertEquals(1, finished.getCount());
+
+        el.close();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertFalse(el.isAlive());
+        assertTrue(el.isClosed());
+    }
+
+    @Test
+    public void platformThreadsLimitedToMaxThreads() throws InterruptedException {
+        System.setProperty("blockingEventLoop.virtual", "false");
+        BlockingEventLoop el;
+        try {
+            el = new BlockingEventLoop("test", 2);
+        } finally {
+            System.clearProperty("blockingEventLoop.virtual");
+        }
+        assertFalse(el.isVirtual());
+        BlockingQueue<String> queue = new ArrayBlockingQueue<>(10);
+        CountDownLatch ran = new CountDownLatch(3);
+        for (int i = 0; i < 2; i++)
+            el.addHandler(takeUntilEnd(queue, ran));
+        try {
+            el.addHandler(takeUntilEnd(queue, ran));
+            fail();
+        } catch (IllegalStateException expected) {
+            // there is no thread for it
+        }
+        el.start();
+        queue.add("end");
+        // once a handler has finished its thread can be used again.
+        long end = System.currentTimeMillis() + 5000;
+        for (; ; ) {
+            try {
+                el.addHandler(takeUntilEnd(queue, ran));
+                break;
+            } catch (IllegalStateException e) {
+                if (System.currentTimeMillis() > end)
+                    throw e;
+                Jvm.pause(1);
+            }
+        }
+        queue.add("end");
+        queue.add("end");
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+
+        el.stop();
+        try {
+            el.addHandler(takeUntilEnd(queue, ran));
+            fail();
+        } catch (IllegalStateException expected) {
+            // stopped
+        }
+        el.close();
+        try {
+            el.addHandler(takeUntilEnd(queue, ran));
+            fail();
+        } catch (IllegalStateException expected) {
+            // closed
+        }
+    }
+
+    static EventHandler takeUntilEnd(BlockingQueue<String> queue, CountDownLatch finished) {
+        return new EventHandler() {
+            @Override
+            public boolean action() throws InvalidEventHandlerException, InterruptedException {
+                if (queue.take().equals("end"))
+                    throw new InvalidEventHandlerException();
+                return true;
+            }
+
+            @Override
+            public void loopFinished() {
+                finished.countDown();
+            }
+        };
+    }
+}
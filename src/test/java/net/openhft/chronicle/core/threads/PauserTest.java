@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+import net.openhft.chronicle.core.Jvm;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class PauserTest {
+    @Test
+    public void busy() {
+        Pauser pauser = Pauser.busy();
+        for (int i = 0; i < 1000; i++)
+            pauser.pause();
+        assertEquals(1000, pauser.countPaused());
+        assertTrue(pauser.spinningNanos() > 0);
+        assertEquals(0, pauser.yieldingNanos());
+        assertEquals(0, pauser.parkedNanos());
+    }
+
+    @Test
+    public void spinningRecordedOnReset() {
+        Pauser pauser = Pauser.busy();
+        for (int i = 0; i < 3; i++)
+            pauser.pause();
+        // the clock is only read every AbstractPauser.SPINS_PER_SAMPLE spins
+        assertEquals(0, pauser.spinningNanos());
+        pauser.reset();
+        assertTrue(pauser.spinningNanos() > 0);
+        assertEquals(3, pauser.countPaused());
+    }
+
+    @Test
+    public void adaptive() {
+        AdaptivePauser pauser = new AdaptivePauser(10, 5, 1_000, 100_000);
+        for (int i = 0; i < 30; i++)
+            pauser.pause();
+        assertEquals(30, pauser.countPaused());
+        assertTrue(pauser.spinningNanos() > 0);
+        assertTrue(pauser.yieldingNanos() > 0);
+        // 1 + 2 + 4 + ... + 100 us at least
+        assertTrue(pauser.parkedNanos() >= 1_000_000);
+        assertEquals(pauser.spinningNanos() + pauser.yieldingNanos() + pauser.parkedNanos(), pauser.timePausedNanos());
+
+        pauser.resetStats();
+        pauser.reset();
+        pauser.pause();
+        assertEquals(0, pauser.parkedNanos());
+        assertEquals(1, pauser.countPaused());
+    }
+
+    @Test
+    public void timeBudgeted() {
+        Pauser pauser = Pauser.timeBudgeted(2, 1, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        while (pauser.parkedNanos() == 0 && System.nanoTime() < start + 1_000_000_000)
+            pauser.pause();
+        // it only parks after spinning for 2 ms
+        assertTrue(System.nanoTime() - start >= 2_000_000);
+        assertTrue(pauser.spinningNanos() > 0);
+        assertTrue(pauser.parkedNanos() > 0);
+    }
+
+    @Test
+    public void unpause() throws InterruptedException {
+        Pauser pauser = Pauser.timedPark(10, TimeUnit.SECONDS);
+        Thread t = new Thread(pauser::pause);
+        t.start();
+        // a park can return early, so don't wait for a thread which already finished.
+        while (t.isAlive() && t.getState() != Thread.State.TIMED_WAITING)
+            Jvm.pause(1);
+        long start = System.nanoTime();
+        pauser.unpause();
+        t.join(5000);
+        assertFalse(t.isAlive());
+        assertTrue(System.nanoTime() - start < 5e9);
+        assertEquals(1, pauser.countPaused());
+    }
+
+    @Test
+    public void unpauseBeforePause() {
+        Pauser pauser = Pauser.timedPark(10, TimeUnit.SECONDS);
+        // before the pausing thread is known
+        pauser.unpause();
+        long start = System.nanoTime();
+        pauser.pause();
+        // once it is known
+        pauser.unpause();
+        pauser.pause();
+        assertTrue(System.nanoTime() - start < 5e9);
+        assertEquals(2, pauser.countPaused());
+    }
+}
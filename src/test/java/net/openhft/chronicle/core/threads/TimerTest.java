@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+import net.openhft.chronicle.core.time.SetTimeProvider;
+import net.openhft.chronicle.core.util.Histogram;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TimerTest {
+    final List<EventHandler> handlers = new ArrayList<>();
+    final EventLoop eventLoop = new EventLoop() {
+        @Override
+        public String name() {
+            return "test";
+        }
+
+        @Override
+        public void addHandler(EventHandler handler) {
+            handlers.add(handler);
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void unpause() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public boolean isClosed() {
+            return false;
+        }
+
+        @Override
+        public boolean isAlive() {
+            return true;
+        }
+
+        @Override
+        public void awaitTermination() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Test
+    public void fixedRateDoesNotDrift() throws InvalidEventHandlerException, InterruptedException {
+        SetTimeProvider time = new SetTimeProvider(1_000_000_000L);
+        AtomicInteger count = new AtomicInteger();
+        Timer.FixedRateSchedule schedule = new Timer(eventLoop, time)
+                .scheduleAtFixedRate(() -> {
+                    count.incrementAndGet();
+                    return false;
+                }, 0, 100, TimeUnit.MICROSECONDS);
+        EventHandler handler = handlers.get(0);
+        assertSame(schedule, handler);
+        assertEquals(HandlerPriority.TIMER, handler.priority());
+
+        // every call is 30 us late, but the deadlines stay on the original schedule
+        time.advanceMicros(30);
+        for (int i = 0; i < 100; i++) {
+            handler.action();
+            handler.action();
+            time.advanceMicros(100);
+        }
+        assertEquals(100, count.get());
+        assertEquals(0, schedule.missedDeadlines());
+        Histogram lateness = schedule.lateness();
+        assertEquals(100, lateness.totalCount());
+        assertEquals(30_000, lateness.percentile(0.5), 300);
+        assertEquals(0, schedule.lateness().totalCount());
+
+        // a pause of 1 ms misses 9 deadlines
+        time.advanceMicros(900);
+        handler.action();
+        assertEquals(101, count.get());
+        assertEquals(9, schedule.missedDeadlines());
+        time.advanceMicros(100);
+        handler.action();
+        assertEquals(102, count.get());
+
+        schedule.cancel();
+        try {
+            handler.action();
+            fail();
+        } catch (InvalidEventHandlerException expected) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.threads;
+
+import net.openhft.chronicle.core.time.SetTimeProvider;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TimingWheelTest {
+    final SetTimeProvider time = new SetTimeProvider(1_000_000_000L);
+
+    @Test
+    public void runsOnceAtDeadline() throws InvalidEventHandlerException {
+        TimingWheel wheel = new TimingWheel(time, 1, 64);
+        wheel.loopStarted();
+        List<Integer> ran = new ArrayList<>();
+        for (int i = 1; i <= 200; i++) {
+            int delay = i;
+            wheel.schedule(() -> ran.add(delay), delay, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(200, wheel.size());
+        for (int i = 1; i <= 200; i++) {
+            time.advanceMillis(1);
+            assertFalse(wheel.action());
+            assertEquals(i, ran.size());
+            assertEquals(i, (int) ran.get(i - 1));
+        }
+        assertEquals(0, wheel.size());
+        time.advanceMillis(1000);
+        wheel.action();
+        assertEquals(200, ran.size());
+    }
+
+    @Test
+    public void cancel() throws InvalidEventHandlerException {
+        TimingWheel wheel = new TimingWheel(time, 1, 64);
+        wheel.loopStarted();
+        AtomicInteger count = new AtomicInteger();
+        List<TimingWheel.Timeout> timeouts = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++)
+            timeouts.add(wheel.schedule(count::incrementAndGet, 30_000 + i % 1000, TimeUnit.MILLISECONDS));
+        for (int i = 0; i < timeouts.size(); i += 2)
+            timeouts.get(i).cancel();
+        assertEquals(100_000, wheel.size());
+        time.advanceMillis(31_000);
+        wheel.action();
+        assertEquals(100_000, count.get());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void fixedRateAndOtherThreads() throws InterruptedException, InvalidEventHandlerException {
+        TimingWheel wheel = new TimingWheel(time, 10, 16);
+        AtomicInteger count = new AtomicInteger();
+        TimingWheel.Timeout[] timeout = new TimingWheel.Timeout[1];
+        Thread t = new Thread(() -> timeout[0] = wheel.scheduleAtFixedRate(() -> {
+            if (count.incrementAndGet() == 5)
+                throw new InvalidEventHandlerException();
+            return false;
+        }, 0, 100, TimeUnit.MILLISECONDS));
+        t.start();
+        t.join();
+        wheel.loopStarted();
+        assertEquals(0, wheel.size());
+        for (int i = 0; i < 100; i++) {
+            time.advanceMillis(10);
+            wheel.action();
+        }
+        assertEquals(5, count.get());
+        assertTrue(timeout[0].isCancelled());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void skipsMissedPeriods() throws InvalidEventHandlerException {
+        TimingWheel wheel = new TimingWheel(time, 1, 16);
+        wheel.loopStarted();
+        AtomicInteger count = new AtomicInteger();
+        wheel.scheduleAtFixedRate(() -> {
+            count.incrementAndGet();
+            return false;
+        }, 5, 5, TimeUnit.MILLISECONDS);
+        time.advanceMillis(1000);
+        wheel.action();
+        assertEquals(1, count.get());
+        time.advanceMillis(5);
+        wheel.action();
+        assertEquals(2, count.get());
+    }
+}
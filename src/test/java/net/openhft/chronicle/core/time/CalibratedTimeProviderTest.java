@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.time;
+
+import net.openhft.chronicle.core.util.AllocationMeasure;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CalibratedTimeProviderTest {
+    long nanoTime = 5_000_000_000L;
+    long wallOffset = 1_600_000_000_000_000_000L;
+    // the wall clock runs 200 ppm fast compared to nanoTime
+    double drift = 1.0002;
+
+    long wallNanos() {
+        return wallOffset + (long) (nanoTime * drift);
+    }
+
+    @Test
+    public void slewsRatherThanSteps() {
+        CalibratedTimeProvider tp = new CalibratedTimeProvider(() -> nanoTime, () -> wallNanos() / 1_000_000, 1, 100, 10, TimeUnit.MILLISECONDS);
+        long last = tp.currentTimeNanos();
+        for (int i = 0; i < 3_000_000; i++) {
+            nanoTime += 1_000;
+            long time = tp.currentTimeNanos();
+            assertTrue(time > last);
+            // no steps, the time advances by the rate
+            assertEquals(1000, time - last, 11);
+            last = time;
+            if (i > 200_000)
+                assertEquals(wallNanos(), time, 1_000_000);
+        }
+        assertEquals(0, tp.steps());
+        assertEquals(3000, tp.calibrations(), 1);
+        assertEquals(drift, tp.rate(), 5e-4);
+        assertTrue(tp.maxCalibrationErrorNanos() < 1_000_000);
+    }
+
+    @Test
+    public void stepsWhenTheClockIsSet() {
+        CalibratedTimeProvider tp = new CalibratedTimeProvider(() -> nanoTime, () -> wallNanos() / 1_000_000, 1, 100, 10, TimeUnit.MILLISECONDS);
+        drift = 1.0;
+        tp.currentTimeNanos();
+        wallOffset += 1_000_000_000L;
+        nanoTime += 2_000_000;
+        long time = tp.currentTimeNanos();
+        assertEquals(1, tp.steps());
+        assertEquals(-1_000_000_000L, tp.calibrationErrorNanos(), 2_000_000);
+        assertEquals(wallNanos(), time, 1_000_000);
+    }
+
+    @Test
+    public void calibratingDoesNotAllocate() {
+        CalibratedTimeProvider tp = new CalibratedTimeProvider(() -> nanoTime, () -> wallNanos() / 1_000_000, 1, 100, 10, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 200_000; i++) {
+            nanoTime += 1_000;
+            tp.currentTimeNanos();
+        }
+        AllocationMeasure am = new AllocationMeasure();
+        am.reset();
+        for (int i = 0; i < 1_000_000; i++) {
+            nanoTime += 1_000;
+            tp.currentTimeNanos();
+        }
+        long allocated = am.markAllocations();
+        assertEquals(1200, tp.calibrations(), 1);
+        // a Calibration per interval would be at least 24 KB
+        assertTrue("allocated " + allocated, allocated < 1_000);
+    }
+
+    @Test
+    public void realClock() {
+        CalibratedTimeProvider tp = new CalibratedTimeProvider();
+        long end = System.currentTimeMillis() + 50;
+        long last = 0;
+        while (System.currentTimeMillis() < end) {
+            long time = tp.currentTimeNanos();
+            assertTrue(time >= last);
+            last = time;
+        }
+        assertEquals(System.currentTimeMillis(), tp.currentTimeMillis(), 20);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.time;
+
+import net.openhft.chronicle.core.Jvm;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class CoarseTimeProviderTest {
+    @Test
+    public void ticks() {
+        SetTimeProvider stp = new SetTimeProvider(1_000_000_000L);
+        AtomicReference<Thread> started = new AtomicReference<>();
+        CoarseTimeProvider ctp = new CoarseTimeProvider(stp, 10, TimeUnit.MICROSECONDS, () -> started.set(Thread.currentThread()));
+        try {
+            assertEquals(1_000_000_000L, ctp.currentTimeNanos());
+            stp.advanceMillis(5);
+            long end = System.currentTimeMillis() + 1000;
+            while (ctp.currentTimeNanos() < 1_005_000_000L && System.currentTimeMillis() < end)
+                Jvm.pause(1);
+            assertEquals(1_005_000_000L, ctp.currentTimeNanos());
+            assertEquals(1_005_000L, ctp.currentTimeMicros());
+            assertEquals(1_005L, ctp.currentTimeMillis());
+            assertEquals("coarse-time-ticker", started.get().getName());
+        } finally {
+            ctp.close();
+        }
+    }
+
+    @Test
+    public void replacesClock() {
+        CoarseTimeProvider ctp = new CoarseTimeProvider(1, TimeUnit.MILLISECONDS);
+        SystemTimeProvider.CLOCK = ctp;
+        try {
+            long time = SystemTimeProvider.CLOCK.currentTimeMillis();
+            assertTrue(Math.abs(time - System.currentTimeMillis()) < 100);
+            Jvm.pause(20);
+            assertTrue(SystemTimeProvider.CLOCK.currentTimeMillis() > time);
+        } finally {
+            ctp.close();
+        }
+        assertSame(SystemTimeProvider.INSTANCE, SystemTimeProvider.CLOCK);
+    }
+}
@@ -1,7 +1,10 @@
 package net.openhft.chronicle.core.time;
 
+import net.openhft.chronicle.core.UnsafeMemory;
 import org.junit.Test;
 
+import java.util.Random;
+
 import static org.junit.Assert.*;
 
 public class LongTimeTest {
@@ -57,4 +60,42 @@ public class LongTimeTest {
         assertEquals(epoch - epoch % 1000, LongTime.toNanos(LongTime.toMicros(epoch)));
         assertEquals(epoch, LongTime.toNanos(LongTime.toNanos(epoch)));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void bulkConversion() {
+        Random random = new Random(1);
+        long[] times = new long[10_000];
+        for (int i = 0; i < times.length; i++) {
+            long secs = 1_600_000_000L + random.nextInt(100_000_000);
+            // mostly blocks of one unit, with some mixed blocks
+            int unit = i < 5_000 ? i / 1_000 % 4 : random.nextInt(4);
+            times[i] = unit == 0 ? secs : unit == 1 ? secs * 1000 + 123 : unit == 2 ? secs * 1000_000 + 123_456 : secs * 1000_000_000 + 123_456_789;
+        }
+        long address = UnsafeMemory.INSTANCE.allocate(times.length * 8L);
+        try {
+            for (int unit = 0; unit < 3; unit++) {
+                long[] copy = times.clone();
+                for (int i = 0; i < copy.length; i++)
+                    UnsafeMemory.INSTANCE.writeLong(address + i * 8L, copy[i]);
+                long[] expected = new long[times.length];
+                for (int i = 0; i < times.length; i++)
+                    expected[i] = unit == 0 ? LongTime.toMillis(times[i]) : unit == 1 ? LongTime.toMicros(times[i]) : LongTime.toNanos(times[i]);
+                if (unit == 0) {
+                    LongTime.toMillis(copy, 0, copy.length);
+                    LongTime.toMillis(address, copy.length);
+                } else if (unit == 1) {
+                    LongTime.toMicros(copy, 0, copy.length);
+                    LongTime.toMicros(address, copy.length);
+                } else {
+                    LongTime.toNanos(copy, 0, copy.length);
+                    LongTime.toNanos(address, copy.length);
+                }
+                assertArrayEquals(expected, copy);
+                for (int i = 0; i < times.length; i++)
+                    assertEquals(expected[i], UnsafeMemory.INSTANCE.readLong(address + i * 8L));
+            }
+        } finally {
+            UnsafeMemory.INSTANCE.freeMemory(address, times.length * 8L);
+        }
+    }
+}
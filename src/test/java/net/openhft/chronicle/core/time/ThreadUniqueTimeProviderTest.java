@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.time;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.*;
+
+public class ThreadUniqueTimeProviderTest {
+    @Test
+    public void uniqueAcrossThreads() throws InterruptedException {
+        ThreadUniqueTimeProvider tp = new ThreadUniqueTimeProvider();
+        int threads = 8, count = 100_000;
+        long[][] times = new long[threads][count];
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread[] ts = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long[] time = times[t];
+            ts[t] = new Thread(() -> {
+                for (int i = 0; i < count; i++) {
+                    time[i] = tp.currentTimeNanos();
+                    if (i > 0 && time[i] <= time[i - 1])
+                        error.set(new AssertionError(time[i] + " <= " + time[i - 1]));
+                }
+            });
+            ts[t].start();
+        }
+        for (Thread t : ts)
+            t.join();
+        assertNull(error.get());
+        long[] all = Arrays.stream(times).flatMapToLong(LongStream::of).toArray();
+        assertEquals(all.length, LongStream.of(all).distinct().count());
+    }
+
+    @Test
+    public void stalledClock() {
+        SetTimeProvider stp = new SetTimeProvider(1_000_000_000L);
+        ThreadUniqueTimeProvider tp = new ThreadUniqueTimeProvider(4).provider(stp);
+        long last = 0;
+        for (int i = 0; i < 1000; i++) {
+            long time = tp.currentTimeNanos();
+            assertTrue(time > last);
+            assertEquals(last == 0 ? 0 : 16, last == 0 ? 0 : time - last);
+            last = time;
+        }
+        assertEquals(1000, stp.currentTimeMillis());
+    }
+
+    @Test
+    public void reserveUniqueTimeNanos() {
+        SetTimeProvider stp = new SetTimeProvider(1_000_000_000L);
+        ThreadUniqueTimeProvider tp = new ThreadUniqueTimeProvider(4).provider(stp);
+        long first = tp.reserveUniqueTimeNanos(100);
+        assertEquals(first + 100 * 16, tp.currentTimeNanos());
+    }
+
+    @Test
+    public void slotsAreReusedAfterThreadDies() throws InterruptedException {
+        SetTimeProvider stp = new SetTimeProvider(1_000_000_000L);
+        ThreadUniqueTimeProvider tp = new ThreadUniqueTimeProvider(1).provider(stp);
+        Set<Long> times = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            Thread t = new Thread(() -> times.add(tp.currentTimeNanos()));
+            t.start();
+            t.join();
+        }
+        assertEquals(10, times.size());
+        // this thread holds one slot, the holder the other.
+        tp.currentTimeNanos();
+
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Object lock = new Object();
+        synchronized (lock) {
+            Thread holder = new Thread(() -> {
+                tp.currentTimeNanos();
+                synchronized (lock) {
+                }
+            });
+            holder.start();
+            while (tp.currentTimeNanos() > 0 && holder.getState() != Thread.State.BLOCKED)
+                Thread.yield();
+            Thread third = new Thread(() -> {
+                try {
+                    tp.currentTimeNanos();
+                } catch (Throwable e) {
+                    error.set(e);
+                }
+            });
+            third.start();
+            third.join();
+        }
+        assertTrue(error.get() instanceof IllegalStateException);
+    }
+}
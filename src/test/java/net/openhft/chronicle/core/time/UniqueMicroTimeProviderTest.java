@@ -2,6 +2,7 @@ package net.openhft.chronicle.core.time;
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class UniqueMicroTimeProviderTest {
@@ -33,4 +34,27 @@ public class UniqueMicroTimeProviderTest {
             last = time / 1000;
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void reserveUniqueTimeMicros() {
+        UniqueMicroTimeProvider tp = new UniqueMicroTimeProvider();
+        SetTimeProvider stp = new SetTimeProvider(1_000_000_000L);
+        tp.provider(stp);
+        long first = tp.reserveUniqueTimeMicros(64);
+        assertEquals(1_000_001, first);
+        assertEquals(first + 64, tp.currentTimeMicros());
+        stp.advanceMicros(1000);
+        assertEquals(1_001_000, tp.reserveUniqueTimeMicros(128));
+        assertEquals(1_001_128, tp.reserveUniqueTimeMicros(1));
+    }
+
+    @Test
+    public void reserveUniqueTimeNanos() {
+        UniqueMicroTimeProvider tp = new UniqueMicroTimeProvider();
+        SetTimeProvider stp = new SetTimeProvider(1_000_000_500L);
+        tp.provider(stp);
+        long first = tp.reserveUniqueTimeNanos(256);
+        assertEquals(1_000_001_000L, first);
+        assertEquals(1_000_257_000L, tp.currentTimeNanos());
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ConcurrentHistogramTest {
+
+    @Test
+    public void snapshotMatchesHistogram() {
+        ConcurrentHistogram ch = new ConcurrentHistogram(7, 5);
+        Histogram h = new Histogram(7, 5);
+        for (int i = 0; i <= 300; i++) {
+            assertEquals(h.sample(i), ch.sample(i));
+        }
+        Histogram snapshot = ch.snapshot();
+        assertEquals(h, snapshot);
+        assertEquals(h.totalCount(), snapshot.totalCount());
+        assertEquals(h.overRange(), snapshot.overRange());
+        assertEquals(h.percentile(0.99), snapshot.percentile(0.99), 0);
+    }
+
+    @Test
+    public void concurrentWriters() throws InterruptedException {
+        ConcurrentHistogram ch = new ConcurrentHistogram(20, 3, 1.0, 4);
+        int threads = 8, samples = 100_000;
+        List<Thread> list = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 1; i <= samples; i++)
+                    ch.sampleNanos(i);
+            });
+            thread.start();
+            list.add(thread);
+        }
+        Histogram snapshot = new Histogram(20, 3);
+        while (list.get(0).isAlive()) {
+            ch.snapshot(snapshot);
+            long sum = 0;
+            for (int count : snapshot.sampleCount())
+                sum += count;
+            assertEquals(snapshot.totalCount(), sum);
+        }
+        for (Thread thread : list)
+            thread.join();
+
+        Histogram expected = new Histogram(20, 3);
+        for (int t = 0; t < threads; t++)
+            for (int i = 1; i <= samples; i++)
+                expected.sampleNanos(i);
+        ch.snapshot(snapshot);
+        assertEquals(expected, snapshot);
+        assertEquals((long) threads * samples, snapshot.totalCount());
+
+        ch.reset();
+        assertEquals(0, ch.snapshot().totalCount());
+    }
+
+    @Test(timeout = 5_000L)
+    public void backFillsLargeStall() {
+        // a 1000 second stall at 1 micro-second intervals is a billion missed samples.
+        ConcurrentHistogram ch = new ConcurrentHistogram(30, 5, 1.0, 2);
+        Histogram h = new Histogram(30, 5);
+        ch.sampleNanos(1_000_000_000_000L, 1_000);
+        h.sample(1_000_000_000_000L, 1_000);
+        Histogram snapshot = ch.snapshot();
+        assertEquals(1_000_000_000L, snapshot.totalCount());
+        assertEquals(h, snapshot);
+        assertEquals(h.totalCount(), snapshot.totalCount());
+        assertEquals(h.overRange(), snapshot.overRange());
+        assertEquals(h.percentile(0.5), snapshot.percentile(0.5), 0);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import net.openhft.chronicle.core.UnsafeMemory;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class HistogramEncodingTest {
+
+    private static Histogram sampled(int from, int to) {
+        Histogram h = Histogram.timeMicros();
+        for (int i = from; i <= to; i += 7)
+            h.sampleNanos(i);
+        h.sampleNanos(Long.MAX_VALUE / 2);
+        return h;
+    }
+
+    @Test
+    public void roundTripByteBuffer() {
+        Histogram h = sampled(1_000, 2_000_000);
+        int size = HistogramEncoding.encodedSize(h);
+        ByteBuffer bb = ByteBuffer.allocate(size);
+        HistogramEncoding.encode(h, bb);
+        assertEquals(size, bb.position());
+        // smaller than the dense int[]
+        assertTrue(size < h.sampleCount().length * 4);
+
+        bb.flip();
+        Histogram h2 = new Histogram();
+        HistogramEncoding.decode(bb, h2);
+        assertEquals(h, h2);
+        assertEquals(h.totalCount(), h2.totalCount());
+        assertEquals(h.overRange(), h2.overRange());
+        assertEquals(h.floor(), h2.floor());
+        assertEquals(h.toMicrosFormat(), h2.toMicrosFormat());
+    }
+
+    @Test
+    public void mergeMany() {
+        Histogram a = sampled(1_000, 100_000);
+        Histogram b = sampled(50_000, 500_000);
+        ByteBuffer[] encoded = new ByteBuffer[2];
+        encoded[0] = ByteBuffer.allocateDirect(HistogramEncoding.encodedSize(a));
+        HistogramEncoding.encode(a, encoded[0]);
+        encoded[0].flip();
+        encoded[1] = ByteBuffer.allocateDirect(HistogramEncoding.encodedSize(b));
+        HistogramEncoding.encode(b, encoded[1]);
+        encoded[1].flip();
+
+        Histogram merged = Histogram.timeMicros();
+        HistogramEncoding.merge(encoded, merged);
+
+        Histogram expected = Histogram.timeMicros();
+        expected.add(a);
+        expected.add(b);
+        assertEquals(expected, merged);
+        assertEquals(expected.totalCount(), merged.totalCount());
+
+        encoded[0].flip();
+        try {
+            HistogramEncoding.merge(encoded[0], new Histogram());
+            fail();
+        } catch (IllegalArgumentException expectedException) {
+            // different shape
+        }
+    }
+
+    @Test
+    public void roundTripNative() {
+        Histogram a = sampled(1_000, 300_000);
+        Histogram b = sampled(2_000, 30_000);
+        int sizeA = HistogramEncoding.encodedSize(a);
+        int sizeB = HistogramEncoding.encodedSize(b);
+        long address = UnsafeMemory.INSTANCE.allocate(sizeA + sizeB);
+        try {
+            assertEquals(sizeA, HistogramEncoding.encode(a, address));
+            assertEquals(sizeB, HistogramEncoding.encode(b, address + sizeA));
+
+            Histogram h = new Histogram();
+            assertEquals(sizeA, HistogramEncoding.decode(address, h));
+            assertEquals(a, h);
+            assertEquals(sizeB, HistogramEncoding.merge(address + sizeA, h));
+            a.add(b);
+            assertEquals(a, h);
+            assertEquals(a.totalCount(), h.totalCount());
+        } finally {
+            UnsafeMemory.INSTANCE.freeMemory(address, sizeA + sizeB);
+        }
+    }
+
+    @Test
+    public void roundTripUnsignedCount() {
+        // a bucket which has wrapped past Integer.MAX_VALUE is encoded as an unsigned int.
+        long count = 3_000_000_000L;
+        Histogram h = new Histogram();
+        h.sampleCount()[100] = (int) count;
+        h.init(h.powersOf2(), h.fractionBits(), 0, count, h.floor());
+        int size = HistogramEncoding.encodedSize(h);
+
+        ByteBuffer bb = ByteBuffer.allocate(size);
+        HistogramEncoding.encode(h, bb);
+        assertEquals(size, bb.position());
+        bb.flip();
+        Histogram h2 = new Histogram();
+        HistogramEncoding.decode(bb, h2);
+        assertEquals(h, h2);
+
+        long address = UnsafeMemory.INSTANCE.allocate(size);
+        try {
+            assertEquals(size, HistogramEncoding.encode(h, address));
+            Histogram h3 = new Histogram();
+            assertEquals(size, HistogramEncoding.decode(address, h3));
+            assertEquals(h, h3);
+            assertEquals(count, h3.sampleCount()[100] & 0xFFFFFFFFL);
+            assertEquals(count, h3.totalCount());
+        } finally {
+            UnsafeMemory.INSTANCE.freeMemory(address, size);
+        }
+    }
+}
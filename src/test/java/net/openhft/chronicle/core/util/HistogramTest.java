@@ -99,4 +99,36 @@ public class HistogramTest {
         assertEquals(30, (long) h.percentile(0.30), 0);
         assertEquals(1, (long) h.percentile(0.0), 0);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testExpectedIntervalBackFill() {
+        Histogram expected = new Histogram(32, 5);
+        NanoSampler looping = expected::sampleNanos;
+        Histogram h = new Histogram(32, 5);
+        long interval = 1_000;
+        for (long nanos : new long[]{500, 1_000, 1_999, 2_000, 12_345, 1_000_000, 123_456_789}) {
+            looping.sampleNanos(nanos, interval);
+            h.sampleNanos(nanos, interval);
+            assertEquals(expected, h);
+            assertEquals(expected.totalCount(), h.totalCount());
+        }
+
+        Histogram mode = new Histogram(32, 5).expectedInterval(interval);
+        mode.sample(1_000_000);
+        assertEquals(1_000, mode.totalCount());
+        assertEquals(1_000, mode.percentile(0.0), 10);
+        assertEquals(500_000, mode.percentile(0.5), 10_000);
+    }
+
+    @Test
+    public void testExpectedIntervalOverRange() {
+        Histogram expected = new Histogram(10, 3);
+        NanoSampler looping = expected::sampleNanos;
+        Histogram h = new Histogram(10, 3);
+        looping.sampleNanos(5_000, 10);
+        h.sampleNanos(5_000, 10);
+        assertEquals(expected, h);
+        assertEquals(expected.overRange(), h.overRange());
+        assertEquals(expected.totalCount(), h.totalCount());
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class IntervalHistogramTest {
+
+    @Test
+    public void intervalsAreSeparate() {
+        IntervalHistogram ih = new IntervalHistogram(7, 5);
+        for (int i = 1; i <= 100; i++)
+            ih.sample(i);
+        Histogram first = ih.intervalHistogram();
+        assertEquals(100, first.totalCount());
+        assertEquals(95, first.percentile(0.95), 0);
+
+        ih.sample(10);
+        Histogram second = ih.intervalHistogram();
+        assertEquals(1, second.totalCount());
+
+        // buffers are recycled.
+        assertSame(first, ih.intervalHistogram());
+        assertEquals(0, first.totalCount());
+    }
+
+    @Test
+    public void noSamplesLostWhileSwapping() throws InterruptedException {
+        IntervalHistogram ih = new IntervalHistogram(20, 3);
+        int samples = 2_000_000;
+        Thread writer = new Thread(() -> {
+            for (int i = 1; i <= samples; i++)
+                ih.sampleNanos(i);
+        });
+        writer.start();
+        Histogram total = new Histogram(20, 3);
+        while (writer.isAlive())
+            ih.intervalHistogram(total);
+        writer.join();
+        ih.intervalHistogram(total);
+        assertEquals(samples, total.totalCount());
+    }
+
+    @Test(timeout = 5_000L)
+    public void backFillsLargeStall() {
+        IntervalHistogram ih = new IntervalHistogram(30, 5);
+        Histogram h = new Histogram(30, 5);
+        ih.sampleNanos(1_000_000_000_000L, 1_000);
+        h.sample(1_000_000_000_000L, 1_000);
+        Histogram interval = ih.intervalHistogram();
+        assertEquals(1_000_000_000L, interval.totalCount());
+        assertEquals(h, interval);
+        assertEquals(h.overRange(), interval.overRange());
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.UnsafeMemory;
+import net.openhft.chronicle.core.io.IOTools;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class NativeHistogramTest {
+
+    @Test
+    public void allocatedMatchesHistogram() {
+        long used = UnsafeMemory.INSTANCE.nativeMemoryUsed();
+        try (NativeHistogram nh = NativeHistogram.allocate(7, 5, 1.0)) {
+            assertEquals(used + NativeHistogram.sizeFor(7, 5), UnsafeMemory.INSTANCE.nativeMemoryUsed());
+            Histogram h = new Histogram(7, 5);
+            for (int i = 0; i <= 300; i++)
+                assertEquals(h.sample(i), nh.sample(i));
+            Histogram snapshot = nh.snapshot();
+            assertEquals(h, snapshot);
+            assertEquals(h.totalCount(), snapshot.totalCount());
+            assertEquals(h.overRange(), nh.overRange());
+
+            nh.reset();
+            assertEquals(0, nh.snapshot().totalCount());
+        }
+        assertEquals(used, UnsafeMemory.INSTANCE.nativeMemoryUsed());
+    }
+
+    @Test
+    public void mappedSharedBetweenMappings() throws IOException {
+        File file = new File(OS.getTarget(), "NativeHistogramTest-" + System.nanoTime());
+        try {
+            try (NativeHistogram writer = NativeHistogram.map(file, 20, 3, 1.0);
+                 NativeHistogram reader = NativeHistogram.map(file, 20, 3, 1.0)) {
+                for (int i = 1; i <= 1000; i++)
+                    writer.sampleNanos(i);
+                Histogram snapshot = reader.snapshot();
+                assertEquals(1000, snapshot.totalCount());
+                assertEquals(writer.snapshot(), snapshot);
+            }
+            try (NativeHistogram reopened = NativeHistogram.map(file, 20, 3, 1.0)) {
+                assertEquals(1000, reopened.snapshot().totalCount());
+            }
+            try {
+                NativeHistogram.map(file, 20, 4, 1.0);
+                fail();
+            } catch (IllegalStateException expected) {
+                // different shape
+            }
+        } finally {
+            IOTools.deleteDirWithFiles(file);
+        }
+    }
+
+    @Test(timeout = 5_000L)
+    public void backFillsLargeStall() {
+        try (NativeHistogram nh = NativeHistogram.allocate(30, 5, 1.0)) {
+            Histogram h = new Histogram(30, 5);
+            nh.sampleNanos(1_000_000_000_000L, 1_000);
+            h.sample(1_000_000_000_000L, 1_000);
+            Histogram snapshot = nh.snapshot();
+            assertEquals(1_000_000_000L, snapshot.totalCount());
+            assertEquals(h, snapshot);
+            assertEquals(h.overRange(), nh.overRange());
+        }
+    }
+
+    @Test
+    public void countChecksBounds() {
+        try (NativeHistogram nh = NativeHistogram.allocate(7, 5, 1.0)) {
+            nh.sample(1);
+            assertEquals(1, nh.count(0));
+            assertEquals(0, nh.count((7 << 5) - 1));
+            try {
+                nh.count(7 << 5);
+                fail();
+            } catch (IndexOutOfBoundsException expected) {
+                // beyond the end of the buckets
+            }
+            try {
+                nh.count(-1);
+                fail();
+            } catch (IndexOutOfBoundsException expected) {
+                // in the header
+            }
+        }
+    }
+
+    @Test
+    public void closeWaitsForSamplers() throws InterruptedException {
+        long used = UnsafeMemory.INSTANCE.nativeMemoryUsed();
+        NativeHistogram nh = NativeHistogram.allocate(20, 3, 1.0);
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        AtomicLong samples = new AtomicLong();
+        Thread sampler = new Thread(() -> {
+            try {
+                for (long i = 1; ; i++) {
+                    nh.sampleNanos(i % 1000 + 1, 100);
+                    samples.incrementAndGet();
+                }
+            } catch (Throwable t) {
+                thrown.set(t);
+            }
+        });
+        sampler.start();
+        while (samples.get() < 1000)
+            Thread.yield();
+        nh.close();
+        sampler.join(5000);
+        assertFalse(sampler.isAlive());
+        assertTrue(thrown.get() instanceof IllegalStateException);
+        assertEquals(used, UnsafeMemory.INSTANCE.nativeMemoryUsed());
+        try {
+            nh.overRange();
+            fail();
+        } catch (IllegalStateException expected) {
+            // closed
+        }
+    }
+}
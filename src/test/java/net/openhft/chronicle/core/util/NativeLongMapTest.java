@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import net.openhft.chronicle.core.UnsafeMemory;
+import net.openhft.chronicle.core.io.BackgroundResourceReleaser;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class NativeLongMapTest {
+
+    @Test
+    public void putGetRemove() {
+        long used = UnsafeMemory.INSTANCE.nativeMemoryUsed();
+        NativeLongMap map = new NativeLongMap(100, 3);
+        assertEquals(used + map.sizeInBytes(), UnsafeMemory.INSTANCE.nativeMemoryUsed());
+        long[] value = new long[3];
+        for (long key = 1; key <= 100; key++) {
+            value[0] = key;
+            value[1] = -key;
+            value[2] = key * 3;
+            map.put(key, value);
+        }
+        assertEquals(100, map.size());
+        for (long key = 1; key <= 100; key++) {
+            assertTrue(map.get(key, value));
+            assertEquals(key, value[0]);
+            assertEquals(-key, value[1]);
+            assertEquals(key * 3, value[2]);
+        }
+        assertFalse(map.containsKey(101));
+
+        for (long key = 1; key <= 100; key += 2)
+            assertTrue(map.remove(key));
+        assertFalse(map.remove(1));
+        assertEquals(50, map.size());
+        assertFalse(map.get(1, value));
+        assertTrue(map.containsKey(2));
+
+        // removed slots are reused.
+        for (long key = 1001; key <= 1050; key++)
+            map.put(key, new long[]{key, key, key});
+        assertEquals(100, map.size());
+        for (long key = 1001; key <= 1050; key++) {
+            assertTrue(map.get(key, value));
+            assertEquals(key, value[2]);
+        }
+
+        try {
+            map.put(0, value);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // reserved
+        }
+
+        map.close();
+        BackgroundResourceReleaser.releasePendingResources();
+        assertEquals(used, UnsafeMemory.INSTANCE.nativeMemoryUsed());
+    }
+
+    @Test
+    public void concurrentReadersSeeWholeValues() throws InterruptedException {
+        NativeLongMap map = new NativeLongMap(1000, 4);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int id = t;
+            threads.add(new Thread(() -> {
+                long[] value = new long[4];
+                try {
+                    for (int i = 0; i < 200_000; i++) {
+                        long key = 1 + (i % 500);
+                        if (id < 2) {
+                            if (i % 7 == 0) {
+                                map.remove(key);
+                            } else {
+                                Arrays.fill(value, i);
+                                map.put(key, value);
+                            }
+                        } else if (map.get(key, value)) {
+                            for (int j = 1; j < 4; j++)
+                                if (value[j] != value[0])
+                                    throw new AssertionError("torn read " + Arrays.toString(value));
+                        }
+                    }
+                } catch (Throwable e) {
+                    error.set(e);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads)
+            thread.join();
+        assertNull(error.get());
+        int present = 0;
+        for (long key = 1; key <= 500; key++)
+            if (map.containsKey(key))
+                present++;
+        assertEquals(present, map.size());
+        map.close();
+    }
+
+    @Test
+    public void closeWaitsForReaders() throws InterruptedException {
+        BackgroundResourceReleaser.releasePendingResources();
+        long used = UnsafeMemory.INSTANCE.nativeMemoryUsed();
+        NativeLongMap map = new NativeLongMap(100, 4);
+        long[] value = {1, 2, 3, 4};
+        for (long key = 1; key <= 100; key++)
+            map.put(key, value);
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        AtomicLong reads = new AtomicLong();
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            readers.add(new Thread(() -> {
+                long[] read = new long[4];
+                try {
+                    for (long key = 1; ; key = key % 100 + 1) {
+                        assertTrue(map.get(key, read));
+                        reads.incrementAndGet();
+                    }
+                } catch (Throwable e) {
+                    thrown.compareAndSet(null, e);
+                }
+            }));
+        }
+        readers.forEach(Thread::start);
+        while (reads.get() < 10_000)
+            Thread.yield();
+        map.close();
+        for (Thread reader : readers)
+            reader.join(5000);
+        assertTrue(thrown.get() instanceof IllegalStateException);
+        BackgroundResourceReleaser.releasePendingResources();
+        assertEquals(used, UnsafeMemory.INSTANCE.nativeMemoryUsed());
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PrimitiveMapsTest {
+
+    @Test
+    public void longObjMapMatchesHashMap() {
+        LongObjMap<String> map = new LongObjMap<>(4);
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(2000) - 1000;
+            switch (random.nextInt(3)) {
+                case 0:
+                    assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+                    break;
+                case 1:
+                    assertEquals(expected.remove(key), map.remove(key));
+                    break;
+                default:
+                    assertEquals(expected.get(key), map.get(key));
+                    assertEquals(expected.containsKey(key), map.containsKey(key));
+                    break;
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        Map<Long, String> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+
+        assertEquals("x", map.computeIfAbsent(12345, k -> "x"));
+        assertEquals("x", map.computeIfAbsent(12345, k -> "y"));
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(12345));
+    }
+
+    @Test
+    public void longLongMapMatchesHashMap() {
+        LongLongMap map = new LongLongMap(4, -1);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(2);
+        for (int i = 0; i < 100_000; i++) {
+            long key = (random.nextInt(2000) - 1000) * 0x1_0000_0000L;
+            switch (random.nextInt(4)) {
+                case 0:
+                    assertEquals((long) expected.getOrDefault(key, -1L), map.put(key, i));
+                    expected.put(key, (long) i);
+                    break;
+                case 1:
+                    assertEquals((long) expected.getOrDefault(key, -1L), map.remove(key));
+                    expected.remove(key);
+                    break;
+                case 2:
+                    expected.merge(key, 3L, Long::sum);
+                    assertEquals((long) expected.get(key), map.addValue(key, 3));
+                    break;
+                default:
+                    assertEquals((long) expected.getOrDefault(key, -1L), map.get(key));
+                    assertEquals(expected.containsKey(key), map.containsKey(key));
+                    break;
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        Map<Long, Long> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void intIntMapMatchesHashMap() {
+        IntIntMap map = new IntIntMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(2000) - 1000;
+            switch (random.nextInt(3)) {
+                case 0:
+                    assertEquals((int) expected.getOrDefault(key, 0), map.put(key, i));
+                    expected.put(key, i);
+                    break;
+                case 1:
+                    assertEquals((int) expected.getOrDefault(key, 0), map.remove(key));
+                    expected.remove(key);
+                    break;
+                default:
+                    assertEquals((int) expected.getOrDefault(key, 0), map.get(key));
+                    assertEquals(expected.containsKey(key), map.containsKey(key));
+                    break;
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        Map<Integer, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+        map.clear();
+        assertEquals(0, map.size());
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.core.util;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class StripedWeakIdentitySetTest {
+
+    @Test
+    public void identity() {
+        String a1 = Character.toString('a');
+        String a2 = Character.toString('a');
+        StripedWeakIdentitySet<String> set = new StripedWeakIdentitySet<>(4);
+        assertTrue(set.isEmpty());
+        assertTrue(set.add(a1));
+        assertTrue(set.add(a2));
+        assertFalse(set.add(a1));
+        assertEquals(2, set.size());
+        assertTrue(set.contains(a1));
+        assertFalse(set.contains("b"));
+        assertTrue(set.remove(a1));
+        assertFalse(set.contains(a1));
+        assertTrue(set.contains(a2));
+        set.clear();
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void iterator() {
+        StripedWeakIdentitySet<Object> set = new StripedWeakIdentitySet<>(8);
+        List<Object> objects = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Object o = new Object();
+            objects.add(o);
+            set.add(o);
+        }
+        Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Object o : set)
+            assertTrue(seen.add(o));
+        assertEquals(1000, seen.size());
+
+        for (Iterator<Object> iter = set.iterator(); iter.hasNext(); ) {
+            iter.next();
+            iter.remove();
+        }
+        assertTrue(set.isEmpty());
+        assertEquals(1000, objects.size());
+    }
+}